@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.benchmark;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+
+/**
+ * Context backed by a {@link FakePackageManager} which drops broadcasts. Everything else, such as
+ * creating PendingIntents, goes to the real context.
+ */
+class FakeContext extends ContextWrapper {
+
+  private final PackageManager packageManager;
+
+  FakeContext(final Context base, final PackageManager packageManager) {
+    super(base);
+    this.packageManager = packageManager;
+  }
+
+  @Override
+  public Context getApplicationContext() {
+    return this;
+  }
+
+  @Override
+  public PackageManager getPackageManager() {
+    return packageManager;
+  }
+
+  @Override
+  public void sendBroadcast(final Intent intent) {
+    // dropped, WhatsApp is not involved in the benchmarks
+  }
+
+  @Override
+  public Intent registerReceiver(final BroadcastReceiver receiver, final IntentFilter filter) {
+    return null;
+  }
+
+  @Override
+  public Intent registerReceiver(final BroadcastReceiver receiver, final IntentFilter filter,
+      final int flags) {
+    return null;
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.benchmark;
+
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.ResolveInfo;
+import android.test.mock.MockPackageManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Package manager answering from memory, so benchmarks measure the sdk and not the system server.
+ * Every answer is built upfront to keep the fake out of the allocation counts.
+ */
+class FakePackageManager extends MockPackageManager {
+
+  private final NameNotFoundException notFound = new NameNotFoundException();
+  private final Map<String, PackageInfo> installedPackages = new HashMap<>();
+  private final Map<String, List<ResolveInfo>> receiversByPackage = new HashMap<>();
+  private final List<ResolveInfo> allReceivers = new ArrayList<>();
+
+  /**
+   * @param installedPackages        packages reported as installed
+   * @param packagesWithOtpReceiver  installed packages reported with a handshake receiver
+   */
+  FakePackageManager(final List<String> installedPackages,
+      final List<String> packagesWithOtpReceiver) {
+    for (String packageName : installedPackages) {
+      PackageInfo packageInfo = new PackageInfo();
+      packageInfo.packageName = packageName;
+      this.installedPackages.put(packageName, packageInfo);
+    }
+    for (String packageName : packagesWithOtpReceiver) {
+      ResolveInfo receiver = new ResolveInfo();
+      receiver.activityInfo = new ActivityInfo();
+      receiver.activityInfo.packageName = packageName;
+      receiversByPackage.put(packageName, Collections.singletonList(receiver));
+      allReceivers.add(receiver);
+    }
+  }
+
+  @Override
+  public PackageInfo getPackageInfo(final String packageName, final int flags)
+      throws NameNotFoundException {
+    PackageInfo packageInfo = installedPackages.get(packageName);
+    if (packageInfo == null) {
+      throw notFound;
+    }
+    return packageInfo;
+  }
+
+  @Override
+  public List<ResolveInfo> queryBroadcastReceivers(final Intent intent, final int flags) {
+    if (intent.getPackage() == null) {
+      return allReceivers;
+    }
+    List<ResolveInfo> receivers = receiversByPackage.get(intent.getPackage());
+    return receivers != null ? receivers : Collections.emptyList();
+  }
+}
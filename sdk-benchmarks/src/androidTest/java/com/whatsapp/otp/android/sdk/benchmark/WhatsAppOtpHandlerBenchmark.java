@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.benchmark;
+
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.whatsapp.otp.android.sdk.WhatsAppOtpHandler;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class WhatsAppOtpHandlerBenchmark {
+
+  @Rule
+  public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  // the most common setup: only the consumer app is installed
+  private final Context context = new FakeContext(
+      InstrumentationRegistry.getInstrumentation().getTargetContext(),
+      new FakePackageManager(
+          Collections.singletonList(WhatsAppClientType.CONSUMER.getPackageName()),
+          Collections.singletonList(WhatsAppClientType.CONSUMER.getPackageName())));
+
+  private final WhatsAppOtpHandler whatsAppOtpHandler = new WhatsAppOtpHandler();
+
+  @Test
+  public void isWhatsAppInstalled_cached() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      whatsAppOtpHandler.isWhatsAppInstalled(context);
+    }
+  }
+
+  @Test
+  public void isWhatsAppOtpHandshakeSupported_cached() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      whatsAppOtpHandler.isWhatsAppOtpHandshakeSupported(context);
+    }
+  }
+
+  @Test
+  public void isWhatsAppOtpHandshakeSupported_uncached() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      whatsAppOtpHandler.invalidateCapabilityCache();
+      whatsAppOtpHandler.isWhatsAppOtpHandshakeSupported(context);
+    }
+  }
+
+  @Test
+  public void probe() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      whatsAppOtpHandler.probe(context);
+    }
+  }
+
+  @Test
+  public void probe_bothInstalled() {
+    final Context bothInstalledContext = new FakeContext(
+        InstrumentationRegistry.getInstrumentation().getTargetContext(),
+        new FakePackageManager(
+            Arrays.asList(WhatsAppClientType.CONSUMER.getPackageName(),
+                WhatsAppClientType.BUSINESS.getPackageName()),
+            Arrays.asList(WhatsAppClientType.CONSUMER.getPackageName(),
+                WhatsAppClientType.BUSINESS.getPackageName())));
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      whatsAppOtpHandler.probe(bothInstalledContext);
+    }
+  }
+
+  @Test
+  public void sendOtpIntentToWhatsApp() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      whatsAppOtpHandler.sendOtpIntentToWhatsApp(context);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.benchmark;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.whatsapp.otp.android.sdk.WhatsAppOtpIncomingIntentHandler;
+import com.whatsapp.otp.android.sdk.WhatsAppOtpIntentBuilder;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Only WhatsApp can create a PendingIntent with a WhatsApp creator package, so the intents used
+ * here carry a PendingIntent created by the benchmark itself. They measure the cost of verifying
+ * an intent up to and including the creator package lookup.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WhatsAppOtpIncomingIntentHandlerBenchmark {
+
+  @Rule
+  public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+  private final WhatsAppOtpIncomingIntentHandler incomingIntentHandler =
+      new WhatsAppOtpIncomingIntentHandler();
+
+  @Test
+  public void isIntentFromWhatsApp_withoutCallerInfo() {
+    final Intent intent = new Intent();
+    intent.putExtra("code", "123456");
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      incomingIntentHandler.isIntentFromWhatsApp(intent);
+    }
+  }
+
+  @Test
+  public void isIntentFromWhatsApp_withCallerInfo() {
+    final Intent intent = newIntentWithCallerInfo();
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      incomingIntentHandler.isIntentFromWhatsApp(intent);
+    }
+  }
+
+  @Test
+  public void processOtpCode_withCallerInfo() {
+    final Intent intent = newIntentWithCallerInfo();
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      incomingIntentHandler.processOtpCode(intent, code -> {
+      }, (error, exception) -> {
+      });
+    }
+  }
+
+  @Test
+  public void fromPackageName() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      WhatsAppClientType.fromPackageName("com.whatsapp.w4b");
+    }
+  }
+
+  private Intent newIntentWithCallerInfo() {
+    final PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, new Intent(),
+        PendingIntent.FLAG_IMMUTABLE);
+    final Intent intent = new Intent();
+    intent.putExtra(WhatsAppOtpIntentBuilder.CALLER_INFO, pendingIntent);
+    intent.putExtra("code", "123456");
+    return intent;
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.benchmark;
+
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.whatsapp.otp.android.sdk.WhatsAppOtpIntentBuilder;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class WhatsAppOtpIntentBuilderBenchmark {
+
+  @Rule
+  public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private final Context context = new FakeContext(
+      InstrumentationRegistry.getInstrumentation().getTargetContext(),
+      new FakePackageManager(Collections.emptyList(), Collections.emptyList()));
+
+  @Test
+  public void create_reusedPendingIntent() {
+    final WhatsAppOtpIntentBuilder builder = new WhatsAppOtpIntentBuilder();
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      builder.create(context, WhatsAppClientType.CONSUMER);
+    }
+  }
+
+  @Test
+  public void create_newPendingIntent() {
+    // the PendingIntent comes from the system server on every call
+    final WhatsAppOtpIntentBuilder builder = new WhatsAppOtpIntentBuilder(true, 0);
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      builder.create(context, WhatsAppClientType.CONSUMER);
+    }
+  }
+
+  @Test
+  public void create_withoutSdkVersion() {
+    final WhatsAppOtpIntentBuilder builder = new WhatsAppOtpIntentBuilder(false);
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      builder.create(context, WhatsAppClientType.CONSUMER);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+/**
+ * Holder of the {@link WhatsAppOtpDiagnostics} registered for the process
+ */
+final class DiagnosticsHolder {
+
+  static volatile WhatsAppOtpDiagnostics diagnostics = BuildConfig.DEBUG
+      ? WhatsAppOtpDiagnostics.LOGCAT : WhatsAppOtpDiagnostics.DISABLED;
+
+  private DiagnosticsHolder() {
+  }
+}
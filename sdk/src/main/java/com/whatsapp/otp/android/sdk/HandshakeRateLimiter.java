@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting how often handshakes are broadcast, registered for the whole process
+ * with {@link WhatsAppOtpHandler#setHandshakeRateLimiter(HandshakeRateLimiter)}.
+ * <p>
+ * The bucket holds up to {@code burst} handshakes and refills at {@code handshakesPerSecond}.
+ * A handshake over the limit is deferred until a token is available if that happens within the
+ * maximum queue delay, and dropped otherwise. The limiter does not take any lock: its whole state
+ * is the time at which the bucket is full again, updated with a compare and set.
+ * </p>
+ */
+public final class HandshakeRateLimiter {
+
+  static final long REJECTED = -1;
+
+  private final long intervalNanos;
+
+  private final long burstNanos;
+
+  private final long maxQueueDelayNanos;
+
+  /**
+   * Time, from {@link System#nanoTime()}, at which every token taken so far is refilled
+   */
+  private final AtomicLong refilledAtNanos;
+
+  /**
+   * Constructor for a limiter dropping every handshake over the limit
+   *
+   * @param handshakesPerSecond rate the bucket refills at
+   * @param burst               handshakes allowed at once when the bucket is full
+   */
+  public HandshakeRateLimiter(final double handshakesPerSecond, final int burst) {
+    this(handshakesPerSecond, burst, 0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param handshakesPerSecond rate the bucket refills at
+   * @param burst               handshakes allowed at once when the bucket is full
+   * @param maxQueueDelay       longest a handshake over the limit is deferred, 0 to drop them
+   * @param unit                unit of the {@code maxQueueDelay}
+   */
+  public HandshakeRateLimiter(final double handshakesPerSecond, final int burst,
+      final long maxQueueDelay, final @NonNull TimeUnit unit) {
+    if (!(handshakesPerSecond > 0)) {
+      throw new IllegalArgumentException("Handshake rate must be positive");
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("Burst must be at least 1");
+    }
+    if (maxQueueDelay < 0) {
+      throw new IllegalArgumentException("Max queue delay cannot be negative");
+    }
+    this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / handshakesPerSecond));
+    this.burstNanos = intervalNanos * burst;
+    this.maxQueueDelayNanos = unit.toNanos(maxQueueDelay);
+    this.refilledAtNanos = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * Take a token for a handshake.
+   *
+   * @param nowNanos current time from {@link System#nanoTime()}
+   * @return 0 if the handshake can be sent now, how many nanoseconds it must be deferred by, or
+   * {@link #REJECTED} if it must be dropped, in which case no token is taken
+   */
+  long acquire(final long nowNanos) {
+    while (true) {
+      final long refilledAt = refilledAtNanos.get();
+      final long newRefilledAt = (refilledAt - nowNanos > 0 ? refilledAt : nowNanos)
+          + intervalNanos;
+      final long delayNanos = newRefilledAt - nowNanos - burstNanos;
+      if (delayNanos > maxQueueDelayNanos) {
+        return REJECTED;
+      }
+      if (refilledAtNanos.compareAndSet(refilledAt, newRefilledAt)) {
+        return Math.max(0, delayNanos);
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import com.whatsapp.otp.android.sdk.data.LatencySnapshot;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with a fixed memory footprint.
+ * <p>
+ * Latencies are recorded in microseconds into log-linear buckets, the same layout HdrHistogram
+ * uses: values below {@value #SUB_BUCKET_COUNT} get a bucket each and every power of two above is
+ * split into {@value #SUB_BUCKET_COUNT} buckets, so a reported percentile is at most 1/16th above
+ * the recorded value. Latencies above {@link #MAX_TRACKABLE_MICROS} are counted as that value.
+ * </p>
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  private static final int MAX_VALUE_BITS = 36;
+
+  /**
+   * Highest latency tracked precisely, a bit more than 19 hours
+   */
+  static final long MAX_TRACKABLE_MICROS = (1L << MAX_VALUE_BITS) - 1;
+
+  private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Record a latency
+   *
+   * @param durationNanos the latency, in nanoseconds. Negative values are ignored.
+   */
+  void record(final long durationNanos) {
+    if (durationNanos < 0) {
+      return;
+    }
+    final long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(durationNanos),
+        MAX_TRACKABLE_MICROS);
+    counts.incrementAndGet(bucketIndex(micros));
+  }
+
+  /**
+   * Drop every recorded latency
+   */
+  void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  /**
+   * Compute the percentiles over the latencies recorded into all the given histograms. Recording
+   * may go on concurrently, in which case the snapshot includes part of the concurrent records.
+   *
+   * @param histograms the histograms to merge
+   * @return the snapshot
+   */
+  @NonNull
+  static LatencySnapshot snapshot(final @NonNull LatencyHistogram... histograms) {
+    final long[] merged = new long[BUCKET_COUNT];
+    long totalCount = 0;
+    for (LatencyHistogram histogram : histograms) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        final long count = histogram.counts.get(i);
+        merged[i] += count;
+        totalCount += count;
+      }
+    }
+    if (totalCount == 0) {
+      return new LatencySnapshot(0, 0, 0, 0, 0);
+    }
+    return new LatencySnapshot(totalCount,
+        valueAtPercentile(merged, totalCount, 50),
+        valueAtPercentile(merged, totalCount, 90),
+        valueAtPercentile(merged, totalCount, 99),
+        valueAtPercentile(merged, totalCount, 100));
+  }
+
+  static int bucketIndex(final long micros) {
+    if (micros < SUB_BUCKET_COUNT) {
+      return (int) micros;
+    }
+    final int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKET_COUNT + (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+  }
+
+  /**
+   * @return the highest value, in microseconds, counted into the bucket
+   */
+  static long highestValueInBucket(final int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKET_COUNT - 1;
+    final long lowestValue = (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+    return lowestValue + (1L << shift) - 1;
+  }
+
+  private static long valueAtPercentile(final long[] counts, final long totalCount,
+      final int percentile) {
+    final long rank = Math.max(1, (totalCount * percentile + 99) / 100);
+    long cumulativeCount = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulativeCount += counts[i];
+      if (cumulativeCount >= rank) {
+        return TimeUnit.MICROSECONDS.toNanos(highestValueInBucket(i));
+      }
+    }
+    return TimeUnit.MICROSECONDS.toNanos(MAX_TRACKABLE_MICROS);
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppOtpError;
+import com.whatsapp.otp.android.sdk.exceptions.WhatsAppOtpErrorException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Process wide registry of the futures waiting for an otp code. A waiter is removed as soon as it
+ * completes, whether with a code, an error, a timeout or a cancellation.
+ */
+final class OtpCodeWaiters {
+
+  private static final Set<CompletableFuture<String>> waiters = ConcurrentHashMap.newKeySet();
+
+  private OtpCodeWaiters() {
+  }
+
+  @NonNull
+  static CompletableFuture<String> await(final long timeout, final @NonNull TimeUnit unit) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("Timeout must be positive");
+    }
+    final CompletableFuture<String> waiter = new CompletableFuture<>();
+    waiters.add(waiter);
+    final ScheduledFuture<?> timeoutTask = SdkScheduler.get().schedule(() -> {
+      waiters.remove(waiter);
+      waiter.completeExceptionally(new TimeoutException("No otp code received"));
+    }, timeout, unit);
+    waiter.whenComplete((code, throwable) -> {
+      waiters.remove(waiter);
+      timeoutTask.cancel(false);
+    });
+    return waiter;
+  }
+
+  static void complete(final @NonNull String code) {
+    for (CompletableFuture<String> waiter : waiters) {
+      waiter.complete(code);
+    }
+  }
+
+  static void fail(final @NonNull WhatsAppOtpError error, final @Nullable Exception cause) {
+    if (waiters.isEmpty()) {
+      return;
+    }
+    final WhatsAppOtpErrorException exception = new WhatsAppOtpErrorException(error, cause);
+    for (CompletableFuture<String> waiter : waiters) {
+      waiter.completeExceptionally(exception);
+    }
+  }
+
+  static int size() {
+    return waiters.size();
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single daemon thread shared by the sdk for background work which may block, such as binder
+ * calls, so that it does not hold up the short tasks of {@link SdkScheduler}. Tasks run in
+ * submission order. The thread stops when idle.
+ */
+final class SdkExecutor {
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private SdkExecutor() {
+  }
+
+  @NonNull
+  static Executor get() {
+    return Holder.EXECUTOR;
+  }
+
+  private static class Holder {
+
+    private static final Executor EXECUTOR = newExecutor();
+
+    private static Executor newExecutor() {
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "WhatsAppOtpSdkWorker");
+            thread.setDaemon(true);
+            return thread;
+          });
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+}
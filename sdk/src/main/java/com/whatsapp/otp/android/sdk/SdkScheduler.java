@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Single daemon thread shared by the sdk for timeouts and deferred work. Tasks run on it must be
+ * short.
+ */
+final class SdkScheduler {
+
+  private SdkScheduler() {
+  }
+
+  @NonNull
+  static ScheduledExecutorService get() {
+    return Holder.SCHEDULER;
+  }
+
+  private static class Holder {
+
+    private static final ScheduledExecutorService SCHEDULER = newScheduler();
+
+    private static ScheduledExecutorService newScheduler() {
+      final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+          runnable -> {
+            final Thread thread = new Thread(runnable, "WhatsAppOtpSdk");
+            thread.setDaemon(true);
+            return thread;
+          });
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+}
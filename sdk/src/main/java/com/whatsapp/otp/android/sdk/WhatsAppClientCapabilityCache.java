@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Build;
+import android.os.PatternMatcher;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.whatsapp.otp.android.sdk.data.WhatsAppClientCapability;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of {@link WhatsAppClientCapability} per {@link WhatsAppClientType}.
+ * <p>
+ * A capability is looked up from the {@link PackageManager} the first time it is requested and
+ * then served from memory. Every cache in the process is invalidated when a WhatsApp package,
+ * including the variants in {@link WhatsAppClientRegistry}, is added, replaced or removed.
+ * </p>
+ * <p>
+ * You need to have the following definition in your AndroidManifest for the package change
+ * broadcasts to be delivered:
+ * </p>
+ * <pre>
+ *     &#60;queries&#62;
+ *         &#60;package android:name="com.whatsapp"/&#62;
+ *         &#60;package android:name="com.whatsapp.w4b"/&#62;
+ *     &#60;/queries&#62;
+ * </pre>
+ */
+public class WhatsAppClientCapabilityCache {
+
+  private static final String TAG = WhatsAppClientCapabilityCache.class.getSimpleName();
+
+  private static final AtomicLong generation = new AtomicLong();
+
+  private static final int RECEIVER_UNREGISTERED = 0;
+
+  private static final int RECEIVER_REGISTERED = 1;
+
+  private static final int RECEIVER_FAILED = 2;
+
+  private static final AtomicInteger packageChangeReceiverState = new AtomicInteger(
+      RECEIVER_UNREGISTERED);
+
+  /**
+   * Context the receiver is registered with, guarded by the class
+   */
+  private static Context receiverContext;
+
+  /**
+   * Receiver currently registered, guarded by the class
+   */
+  private static BroadcastReceiver packageChangeReceiver;
+
+  private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(
+      WhatsAppClientType.values().length);
+
+  /**
+   * Number of {@link #invalidate()} calls on this cache, so a load racing with one is not cached
+   */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  private volatile WhatsAppOtpMetrics metrics = WhatsAppOtpMetrics.NO_OP;
+
+  /**
+   * Get the capability of a WhatsApp client, loading it from the {@link PackageManager} if it is
+   * not cached yet or if a WhatsApp package changed since it was cached.
+   *
+   * @param context application context
+   * @param type    WhatsApp client, can be either consumer or business
+   * @return the capability of the client
+   */
+  @NonNull
+  public WhatsAppClientCapability get(final @NonNull Context context,
+      final @NonNull WhatsAppClientType type) {
+    final boolean invalidationAvailable = registerPackageChangeReceiver(context);
+    // read the generations before loading so a change during the load is not missed
+    final long currentGeneration = generation.get();
+    final long currentInvalidations = invalidations.get();
+    final Entry entry = entries.get(type.ordinal());
+    if (invalidationAvailable && entry != null && entry.generation == currentGeneration
+        && entry.invalidations == currentInvalidations) {
+      return entry.capability;
+    }
+    final WhatsAppOtpMetrics metrics = this.metrics;
+    final WhatsAppClientCapability capability;
+    if (metrics == WhatsAppOtpMetrics.NO_OP) {
+      capability = load(context, type);
+    } else {
+      final long loadStart = System.nanoTime();
+      capability = load(context, type);
+      metrics.onCapabilityLoaded(type, System.nanoTime() - loadStart);
+    }
+    if (invalidationAvailable) {
+      entries.set(type.ordinal(),
+          new Entry(capability, currentGeneration, currentInvalidations));
+    }
+    return capability;
+  }
+
+  /**
+   * Register a listener for the time spent looking up capabilities from the package manager.
+   *
+   * @param metrics the listener, {@link WhatsAppOtpMetrics#NO_OP} to stop listening
+   */
+  public void setMetrics(final @NonNull WhatsAppOtpMetrics metrics) {
+    if (metrics == null) {
+      throw new NullPointerException("Metrics cannot be null");
+    }
+    this.metrics = metrics;
+  }
+
+  /**
+   * Drop every cached capability. The next {@link #get(Context, WhatsAppClientType) get} call
+   * will query the {@link PackageManager} again.
+   */
+  public void invalidate() {
+    invalidations.incrementAndGet();
+    for (int i = 0; i < entries.length(); i++) {
+      entries.set(i, null);
+    }
+  }
+
+  /**
+   * Invalidate every cache in the process. Called when a WhatsApp package changes.
+   */
+  static void invalidateAll() {
+    generation.incrementAndGet();
+  }
+
+  /**
+   * Invalidate every cache in the process and listen to the changes of the packages now in
+   * {@link WhatsAppClientRegistry}. Called when a package is registered or unregistered.
+   */
+  static void onRegistryChanged() {
+    invalidateAll();
+    synchronized (WhatsAppClientCapabilityCache.class) {
+      if (packageChangeReceiverState.get() != RECEIVER_REGISTERED) {
+        return;
+      }
+      // the new receiver is registered first so no package change is missed in between
+      final BroadcastReceiver previousReceiver = packageChangeReceiver;
+      registerReceiverLocked();
+      try {
+        receiverContext.unregisterReceiver(previousReceiver);
+      } catch (IllegalArgumentException e) {
+        // already unregistered
+      }
+    }
+  }
+
+  /**
+   * Forget the registration state of the package change receiver, for tests
+   */
+  static synchronized void resetPackageChangeReceiver() {
+    packageChangeReceiverState.set(RECEIVER_UNREGISTERED);
+    receiverContext = null;
+    packageChangeReceiver = null;
+  }
+
+  @NonNull
+  static WhatsAppClientCapability load(final @NonNull Context context,
+      final @NonNull WhatsAppClientType type) {
+    final PackageManager packageManager = context.getPackageManager();
+    boolean installed = false;
+    long versionCode = WhatsAppClientCapability.UNKNOWN_VERSION_CODE;
+    for (String packageName : WhatsAppClientRegistry.packages(type)) {
+      final PackageInfo packageInfo;
+      try {
+        packageInfo = packageManager.getPackageInfo(packageName, 0);
+      } catch (PackageManager.NameNotFoundException e) {
+        continue;
+      }
+      if (!installed) {
+        installed = true;
+        versionCode = getVersionCode(packageInfo);
+      }
+      final Intent intent = new Intent();
+      intent.setPackage(packageName);
+      intent.setAction(WhatsAppOtpIntentBuilder.OTP_REQUESTED_ACTION);
+      final List<ResolveInfo> receivers = packageManager.queryBroadcastReceivers(intent, 0);
+      if (!receivers.isEmpty()) {
+        return new WhatsAppClientCapability(type, true, true, versionCode);
+      }
+    }
+    return new WhatsAppClientCapability(type, installed, false, versionCode);
+  }
+
+  @SuppressWarnings("deprecation")
+  private static long getVersionCode(final PackageInfo packageInfo) {
+    if (packageInfo == null) {
+      return WhatsAppClientCapability.UNKNOWN_VERSION_CODE;
+    }
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? packageInfo.getLongVersionCode()
+        : packageInfo.versionCode;
+  }
+
+  /**
+   * Register the receiver invalidating the caches, once per process.
+   *
+   * @return true if the receiver is registered and cached capabilities can be reused
+   */
+  private static boolean registerPackageChangeReceiver(final Context context) {
+    final int state = packageChangeReceiverState.get();
+    if (state != RECEIVER_UNREGISTERED) {
+      return state == RECEIVER_REGISTERED;
+    }
+    synchronized (WhatsAppClientCapabilityCache.class) {
+      if (packageChangeReceiverState.get() == RECEIVER_UNREGISTERED) {
+        receiverContext = context.getApplicationContext() != null
+            ? context.getApplicationContext() : context;
+        registerReceiverLocked();
+      }
+      return packageChangeReceiverState.get() == RECEIVER_REGISTERED;
+    }
+  }
+
+  /**
+   * Register a receiver for the changes of the packages in {@link WhatsAppClientRegistry}. Must
+   * hold the class lock.
+   */
+  private static void registerReceiverLocked() {
+    final IntentFilter filter = new IntentFilter();
+    filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+    filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+    filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+    filter.addDataScheme("package");
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      for (String packageName : WhatsAppClientRegistry.packages(type)) {
+        filter.addDataSchemeSpecificPart(packageName, PatternMatcher.PATTERN_LITERAL);
+      }
+    }
+    final BroadcastReceiver receiver = new PackageChangeReceiver();
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+        receiverContext.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+      } else {
+        receiverContext.registerReceiver(receiver, filter);
+      }
+      packageChangeReceiver = receiver;
+      packageChangeReceiverState.set(RECEIVER_REGISTERED);
+    } catch (RuntimeException e) {
+      // without the receiver cached entries could go stale, so nothing is cached from now on
+      packageChangeReceiverState.set(RECEIVER_FAILED);
+      final WhatsAppOtpDiagnostics diagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+      if (diagnostics.isLoggable(Log.WARN)) {
+        diagnostics.log(Log.WARN, TAG,
+            () -> "Package change receiver not registered, capabilities are not cached", e);
+      }
+    }
+  }
+
+  private static class PackageChangeReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(final Context context, final Intent intent) {
+      invalidateAll();
+    }
+  }
+
+  private static class Entry {
+
+    private final WhatsAppClientCapability capability;
+    private final long generation;
+    private final long invalidations;
+
+    private Entry(final WhatsAppClientCapability capability, final long generation,
+        final long invalidations) {
+      this.capability = capability;
+      this.generation = generation;
+      this.invalidations = invalidations;
+    }
+  }
+}
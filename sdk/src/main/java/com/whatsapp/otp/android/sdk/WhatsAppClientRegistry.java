@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process wide registry of the packages the sdk talks to, per {@link WhatsAppClientType}.
+ * <p>
+ * Each client type starts with its own package. Variants of a client, such as test or beta builds,
+ * can be registered with {@link #registerPackage(String, WhatsAppClientType)}: handshakes to the
+ * client are also broadcast to them and probes and capability checks include them. Package
+ * lookups are constant time and do not allocate.
+ * </p>
+ * <p>
+ * Registering a variant does not make the intents it sends trusted: incoming intents are only
+ * accepted from the packages of {@link WhatsAppClientType}, unless the variant is also accepted
+ * with its signing certificate through
+ * {@link WhatsAppOtpIncomingIntentHandler#acceptVariant acceptVariant}.
+ * </p>
+ * <p>
+ * Registered packages must also be declared in the {@code <queries>} section of your
+ * AndroidManifest.
+ * </p>
+ */
+public final class WhatsAppClientRegistry {
+
+  private static volatile Snapshot snapshot = Snapshot.withDefaultPackages();
+
+  private WhatsAppClientRegistry() {
+  }
+
+  /**
+   * Register a package as a variant of a WhatsApp client. Registering a package again moves it to
+   * the given client.
+   *
+   * @param packageName package name of the variant
+   * @param type        WhatsApp client the variant belongs to
+   * @throws IllegalArgumentException if the package is the package of a {@link WhatsAppClientType}
+   */
+  public static synchronized void registerPackage(final @NonNull String packageName,
+      final @NonNull WhatsAppClientType type) {
+    if (packageName == null) {
+      throw new NullPointerException("Package name cannot be null");
+    }
+    if (type == null) {
+      throw new NullPointerException("WhatsApp application type must be defined.");
+    }
+    checkNotDefaultPackage(packageName);
+    snapshot = snapshot.withoutPackage(packageName).withPackage(packageName, type);
+    WhatsAppClientCapabilityCache.onRegistryChanged();
+  }
+
+  /**
+   * Remove a package registered with {@link #registerPackage(String, WhatsAppClientType)}.
+   *
+   * @param packageName package name of the variant
+   * @throws IllegalArgumentException if the package is the package of a {@link WhatsAppClientType}
+   */
+  public static synchronized void unregisterPackage(final @NonNull String packageName) {
+    if (packageName == null) {
+      throw new NullPointerException("Package name cannot be null");
+    }
+    checkNotDefaultPackage(packageName);
+    snapshot = snapshot.withoutPackage(packageName);
+    WhatsAppClientCapabilityCache.onRegistryChanged();
+  }
+
+  /**
+   * Find the WhatsApp client a package belongs to.
+   *
+   * @param packageName a package name
+   * @return the WhatsApp client, or null if the package is not a registered WhatsApp package
+   */
+  @Nullable
+  public static WhatsAppClientType getClientType(final @Nullable String packageName) {
+    return packageName == null ? null : snapshot.clientTypes.get(packageName);
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return the packages of the client, its own package first
+   */
+  @NonNull
+  public static List<String> getPackageNames(final @NonNull WhatsAppClientType type) {
+    return Collections.unmodifiableList(Arrays.asList(packages(type)));
+  }
+
+  /**
+   * @return the packages of the client, its own package first. The array must not be modified.
+   */
+  @NonNull
+  static String[] packages(final @NonNull WhatsAppClientType type) {
+    return snapshot.packagesByType[type.ordinal()];
+  }
+
+  private static void checkNotDefaultPackage(final String packageName) {
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      if (type.getPackageName().equals(packageName)) {
+        throw new IllegalArgumentException(packageName + " is the package of " + type);
+      }
+    }
+  }
+
+  /**
+   * Immutable state of the registry, replaced as a whole on every change
+   */
+  private static class Snapshot {
+
+    private final Map<String, WhatsAppClientType> clientTypes;
+    private final String[][] packagesByType;
+
+    private Snapshot(final Map<String, WhatsAppClientType> clientTypes,
+        final String[][] packagesByType) {
+      this.clientTypes = clientTypes;
+      this.packagesByType = packagesByType;
+    }
+
+    private static Snapshot withDefaultPackages() {
+      final WhatsAppClientType[] types = WhatsAppClientType.values();
+      final Map<String, WhatsAppClientType> clientTypes = new HashMap<>();
+      final String[][] packagesByType = new String[types.length][];
+      for (WhatsAppClientType type : types) {
+        clientTypes.put(type.getPackageName(), type);
+        packagesByType[type.ordinal()] = new String[]{type.getPackageName()};
+      }
+      return new Snapshot(clientTypes, packagesByType);
+    }
+
+    private Snapshot withPackage(final String packageName, final WhatsAppClientType type) {
+      final Map<String, WhatsAppClientType> clientTypes = new HashMap<>(this.clientTypes);
+      clientTypes.put(packageName, type);
+      final String[][] packagesByType = this.packagesByType.clone();
+      final String[] packages = packagesByType[type.ordinal()];
+      packagesByType[type.ordinal()] = Arrays.copyOf(packages, packages.length + 1);
+      packagesByType[type.ordinal()][packages.length] = packageName;
+      return new Snapshot(clientTypes, packagesByType);
+    }
+
+    private Snapshot withoutPackage(final String packageName) {
+      final WhatsAppClientType type = clientTypes.get(packageName);
+      if (type == null) {
+        return this;
+      }
+      final Map<String, WhatsAppClientType> clientTypes = new HashMap<>(this.clientTypes);
+      clientTypes.remove(packageName);
+      final String[][] packagesByType = this.packagesByType.clone();
+      final String[] packages = packagesByType[type.ordinal()];
+      final String[] remaining = new String[packages.length - 1];
+      int index = 0;
+      for (String candidate : packages) {
+        if (!candidate.equals(packageName)) {
+          remaining[index++] = candidate;
+        }
+      }
+      packagesByType[type.ordinal()] = remaining;
+      return new Snapshot(clientTypes, packagesByType);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.app.PendingIntent;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the codes recently delivered so the same code is not delivered twice, for instance
+ * when the activity receiving it is recreated or gets the same intent again through
+ * {@code onNewIntent}.
+ * <p>
+ * Register it with
+ * {@link WhatsAppOtpIncomingIntentHandler#setCodeDeduplicator(WhatsAppOtpCodeDeduplicator)}. A
+ * delivery is a duplicate if the same code came with the same caller info PendingIntent within
+ * the ttl; duplicates are dropped before any callback runs and counted. A delivery is only
+ * remembered once its callback returns, so a code whose callback failed is delivered again. At
+ * most {@code maxEntries} deliveries are remembered, the oldest ones are forgotten first.
+ * </p>
+ */
+public final class WhatsAppOtpCodeDeduplicator {
+
+  private final int maxEntries;
+
+  private final long ttlNanos;
+
+  private final AtomicLong suppressedCount = new AtomicLong();
+
+  /**
+   * Delivery time, from {@link System#nanoTime()}, per delivery in delivery order. Guarded by
+   * this.
+   */
+  private final LinkedHashMap<Key, Long> deliveries;
+
+  /**
+   * Constructor
+   *
+   * @param maxEntries number of deliveries remembered, must be positive
+   * @param ttl        how long a delivery is remembered, must be positive
+   * @param unit       unit of the {@code ttl}
+   */
+  public WhatsAppOtpCodeDeduplicator(final int maxEntries, final long ttl,
+      final @NonNull TimeUnit unit) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("Max entries must be positive");
+    }
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("Ttl must be positive");
+    }
+    if (unit == null) {
+      throw new NullPointerException("Time unit cannot be null");
+    }
+    this.maxEntries = maxEntries;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.deliveries = new LinkedHashMap<Key, Long>(16, 0.75f, false) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, Long> eldest) {
+        return size() > WhatsAppOtpCodeDeduplicator.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * @return the number of duplicate deliveries dropped
+   */
+  public long getSuppressedCount() {
+    return suppressedCount.get();
+  }
+
+  /**
+   * Forget every delivery, the next delivery of any code is not a duplicate
+   */
+  public synchronized void clear() {
+    deliveries.clear();
+  }
+
+  /**
+   * Check if a delivery is a duplicate, in which case it is counted as suppressed. The delivery
+   * is not recorded, see {@link #recordDelivery(String, PendingIntent, long)}.
+   *
+   * @return true if the same delivery was recorded within the ttl
+   */
+  synchronized boolean isDuplicate(final @NonNull String code,
+      final @Nullable PendingIntent callerInfo, final long nowNanos) {
+    if (wasDelivered(code, callerInfo, nowNanos)) {
+      suppressedCount.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Check if a delivery is a duplicate without counting it
+   *
+   * @return true if the same delivery was recorded within the ttl
+   */
+  synchronized boolean wasDelivered(final @NonNull String code,
+      final @Nullable PendingIntent callerInfo, final long nowNanos) {
+    final Long deliveredAt = deliveries.get(new Key(code, callerInfo));
+    return deliveredAt != null && nowNanos - deliveredAt < ttlNanos;
+  }
+
+  /**
+   * Record a delivery whose callback succeeded
+   */
+  synchronized void recordDelivery(final @NonNull String code,
+      final @Nullable PendingIntent callerInfo, final long nowNanos) {
+    final Key key = new Key(code, callerInfo);
+    // removed first so the delivery moves to the end of the eviction order
+    deliveries.remove(key);
+    deliveries.put(key, nowNanos);
+  }
+
+  private static final class Key {
+
+    private final String code;
+    private final PendingIntent callerInfo;
+    private final int hash;
+
+    private Key(final String code, final PendingIntent callerInfo) {
+      this.code = code;
+      this.callerInfo = callerInfo;
+      this.hash = 31 * code.hashCode() + Objects.hashCode(callerInfo);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) other;
+      return hash == key.hash && code.equals(key.code)
+          && Objects.equals(callerInfo, key.callerInfo);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
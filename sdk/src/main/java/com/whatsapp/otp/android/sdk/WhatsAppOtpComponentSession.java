@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the component receiving the otp code enabled only while the app waits for a code.
+ * <p>
+ * Call {@link #start(long, TimeUnit) start} when sending the handshake. The component is enabled
+ * and disabled again once {@link WhatsAppOtpIncomingIntentHandler#processOtpCode processOtpCode}
+ * handles a code, once the timeout expires or when {@link #finish()} is called.
+ * </p>
+ * <p>
+ * Component state changes are package manager writes, so they are only applied when needed: the
+ * state of the component is read once, then the state last written is tracked and never written
+ * again. The component is enabled right away on the thread calling {@code start}, so it is ready
+ * when the code arrives. Disabling it is applied in the background after
+ * {@value #COALESCE_WINDOW_MILLIS} ms, so a session started again meanwhile leaves the component
+ * enabled without any write.
+ * </p>
+ */
+public class WhatsAppOtpComponentSession {
+
+  private static final String TAG = WhatsAppOtpComponentSession.class.getSimpleName();
+
+  /**
+   * How long disabling the component is held back so that flips can be coalesced
+   */
+  static final long COALESCE_WINDOW_MILLIS = 100;
+
+  private final Context context;
+
+  private final Class<?> cls;
+
+  private final WhatsAppOtpUtils whatsAppOtpUtils;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final AtomicReference<CompletableFuture<String>> codeWaiter = new AtomicReference<>();
+
+  private final AtomicBoolean applyScheduled = new AtomicBoolean();
+
+  private volatile boolean desiredEnabled;
+
+  /**
+   * State last applied to the package manager, null until the first apply. Guarded by this.
+   */
+  private Boolean appliedEnabled;
+
+  /**
+   * Constructor
+   *
+   * @param context context
+   * @param cls     class of the component receiving the otp code
+   */
+  public WhatsAppOtpComponentSession(final @NonNull Context context, final @NonNull Class<?> cls) {
+    this(context, cls, new WhatsAppOtpUtils(), SdkScheduler.get());
+  }
+
+  WhatsAppOtpComponentSession(final @NonNull Context context, final @NonNull Class<?> cls,
+      final @NonNull WhatsAppOtpUtils whatsAppOtpUtils,
+      final @NonNull ScheduledExecutorService scheduler) {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    if (cls == null) {
+      throw new NullPointerException("Component class cannot be null");
+    }
+    this.context = context.getApplicationContext() != null ? context.getApplicationContext()
+        : context;
+    this.cls = cls;
+    this.whatsAppOtpUtils = whatsAppOtpUtils;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Enable the component until a code is handled or the {@code timeout} expires. Starting again
+   * replaces the previous timeout.
+   *
+   * @param timeout how long to keep the component enabled without a code, must be positive
+   * @param unit    unit of the {@code timeout}
+   */
+  public void start(final long timeout, final @NonNull TimeUnit unit) {
+    final CompletableFuture<String> waiter = OtpCodeWaiters.await(timeout, unit);
+    setDesiredEnabled(true);
+    final CompletableFuture<String> previousWaiter = codeWaiter.getAndSet(waiter);
+    if (previousWaiter != null) {
+      previousWaiter.cancel(false);
+    }
+    waiter.whenComplete((code, throwable) -> {
+      if (codeWaiter.compareAndSet(waiter, null)) {
+        setDesiredEnabled(false);
+      }
+    });
+  }
+
+  /**
+   * Disable the component before a code arrives, for instance when the user leaves the screen
+   * waiting for it.
+   */
+  public void finish() {
+    final CompletableFuture<String> waiter = codeWaiter.get();
+    if (waiter != null) {
+      waiter.cancel(false);
+    }
+  }
+
+  /**
+   * @return true if the component is meant to be enabled, the write may still be pending
+   */
+  public boolean isActive() {
+    return desiredEnabled;
+  }
+
+  private void setDesiredEnabled(final boolean enabled) {
+    desiredEnabled = enabled;
+    if (enabled) {
+      applyDesiredState();
+    } else if (applyScheduled.compareAndSet(false, true)) {
+      scheduler.schedule(this::applyScheduledState, COALESCE_WINDOW_MILLIS,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void applyScheduledState() {
+    // cleared before reading so a change made from now on schedules another run
+    applyScheduled.set(false);
+    applyDesiredState();
+  }
+
+  private synchronized void applyDesiredState() {
+    final boolean enabled = desiredEnabled;
+    if (appliedEnabled != null && appliedEnabled == enabled) {
+      return;
+    }
+    // without a state applied yet, the current state is read so an unneeded write is skipped
+    final Map<Class<?>, Integer> currentStates = appliedEnabled == null ? Collections.emptyMap()
+        : Collections.singletonMap(cls, toComponentState(appliedEnabled));
+    try {
+      whatsAppOtpUtils.changeComponentStates(context,
+          Collections.singletonMap(cls, toComponentState(enabled)), currentStates);
+      appliedEnabled = enabled;
+    } catch (RuntimeException e) {
+      final WhatsAppOtpDiagnostics diagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+      if (diagnostics.isLoggable(Log.WARN)) {
+        diagnostics.log(Log.WARN, TAG, () -> "Could not " + (enabled ? "enable " : "disable ")
+            + cls.getName(), e);
+      }
+    }
+  }
+
+  private static int toComponentState(final boolean enabled) {
+    return enabled ? PackageManager.COMPONENT_ENABLED_STATE_ENABLED
+        : PackageManager.COMPONENT_ENABLED_STATE_DISABLED;
+  }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.data.DebugSignal;
+import com.whatsapp.otp.android.sdk.data.DebugSignalSnapshot;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the debug signals sent by WhatsApp: a count per error identifier and the latest
+ * signals.
+ * <p>
+ * Register it with
+ * {@link WhatsAppOtpIncomingIntentHandler#setDebugSignalAggregator(WhatsAppOtpDebugSignalAggregator)}
+ * to aggregate the signals handled by
+ * {@link WhatsAppOtpIncomingIntentHandler#processOtpDebugSignals processOtpDebugSignals}.
+ * Recording a signal takes no lock and does not allocate once its error identifier was seen: the
+ * identifiers documented by WhatsApp are mapped to a fixed id, any other identifier gets the next
+ * free id the first time it is seen, the identifiers seen after every id is taken are counted
+ * together, and the latest signals are kept in a fixed size ring. A signal is still counted but
+ * left out of the ring if another thread is writing to the same slot of the ring at that moment,
+ * or if a newer signal already took the slot. Read the aggregates with {@link #getSnapshot()}.
+ * </p>
+ */
+public final class WhatsAppOtpDebugSignalAggregator {
+
+  /**
+   * Error identifiers documented by WhatsApp, given the first ids in this order
+   */
+  private static final String[] KNOWN_IDENTIFIERS = {
+      "incompatible_os_version",
+      "incorrect_signature_hash",
+      "ambiguous_delivery_destination",
+      "otp_request_expired",
+      "missing_handshake_or_disorder"
+  };
+
+  /**
+   * Number of error identifiers counted on their own, known ones included
+   */
+  static final int MAX_IDENTIFIERS = 32;
+
+  private static final int OTHER_ID = MAX_IDENTIFIERS;
+
+  private final Map<String, Integer> idsByIdentifier = new ConcurrentHashMap<>();
+
+  /**
+   * Error identifiers in id order, the first {@link #identifierCount} are set
+   */
+  private final String[] identifiers = new String[MAX_IDENTIFIERS];
+
+  private volatile int identifierCount;
+
+  private final LongAdder[] counters = new LongAdder[MAX_IDENTIFIERS + 1];
+
+  private final AtomicReferenceArray<DebugSignal> recentSignals;
+
+  /**
+   * Sequence, that is ring index plus one, of the signal in each slot of the ring. Zero if the
+   * slot is empty, negated while the signal is written.
+   */
+  private final AtomicLongArray recentSignalSequences;
+
+  private final int recentSignalsMask;
+
+  /**
+   * Number of signals written to the ring, the next write goes to this index modulo its size
+   */
+  private final AtomicLong recentSignalsCursor = new AtomicLong();
+
+  /**
+   * Constructor
+   *
+   * @param recentSignalCapacity number of latest signals kept, rounded up to a power of two
+   */
+  public WhatsAppOtpDebugSignalAggregator(final int recentSignalCapacity) {
+    if (recentSignalCapacity <= 0 || recentSignalCapacity > 1 << 20) {
+      throw new IllegalArgumentException("Recent signal capacity must be between 1 and 2^20");
+    }
+    final int capacity = Integer.highestOneBit(recentSignalCapacity - 1) << 1;
+    this.recentSignals = new AtomicReferenceArray<>(Math.max(1, capacity));
+    this.recentSignalSequences = new AtomicLongArray(recentSignals.length());
+    this.recentSignalsMask = recentSignals.length() - 1;
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new LongAdder();
+    }
+    for (String identifier : KNOWN_IDENTIFIERS) {
+      intern(identifier);
+    }
+  }
+
+  /**
+   * Record a debug signal
+   *
+   * @param debugSignal the signal
+   */
+  public void record(final @NonNull DebugSignal debugSignal) {
+    if (debugSignal == null) {
+      throw new NullPointerException("Debug signal cannot be null");
+    }
+    counters[identifierId(debugSignal.otpErrorIdentifier)].increment();
+    remember(debugSignal, recentSignalsCursor.getAndIncrement() + 1);
+  }
+
+  /**
+   * Write a signal to its slot of the ring, unless the slot is being written or already holds a
+   * newer signal
+   *
+   * @param debugSignal the signal
+   * @param sequence the ring index of the signal plus one
+   */
+  void remember(final @NonNull DebugSignal debugSignal, final long sequence) {
+    final int slot = (int) ((sequence - 1) & recentSignalsMask);
+    long slotSequence;
+    do {
+      slotSequence = recentSignalSequences.get(slot);
+      if (slotSequence < 0 || slotSequence >= sequence) {
+        // another signal is being written to the slot, or a writer preempted since it took its
+        // sequence would overwrite a newer signal
+        return;
+      }
+    } while (!recentSignalSequences.compareAndSet(slot, slotSequence, -sequence));
+    recentSignals.set(slot, debugSignal);
+    recentSignalSequences.set(slot, sequence);
+  }
+
+  /**
+   * Take an immutable snapshot of the aggregates. Signals recorded while the snapshot is taken
+   * may be partially included: the counts are read one by one, and a signal which is still being
+   * written or is overwritten by a newer one meanwhile is left out of the latest signals.
+   *
+   * @return the counts and latest signals
+   */
+  @NonNull
+  public DebugSignalSnapshot getSnapshot() {
+    final Map<String, Long> countsByIdentifier = new LinkedHashMap<>();
+    final int identifierCount = this.identifierCount;
+    for (int id = 0; id < identifierCount; id++) {
+      countsByIdentifier.put(identifiers[id], counters[id].sum());
+    }
+    final long end = recentSignalsCursor.get();
+    final long start = Math.max(0, end - recentSignals.length());
+    final List<DebugSignal> signals = new ArrayList<>((int) (end - start));
+    for (long index = start; index < end; index++) {
+      final int slot = (int) (index & recentSignalsMask);
+      if (recentSignalSequences.get(slot) != index + 1) {
+        continue;
+      }
+      final DebugSignal signal = recentSignals.get(slot);
+      // the sequence is checked again in case the slot was overwritten while it was read
+      if (recentSignalSequences.get(slot) == index + 1) {
+        signals.add(signal);
+      }
+    }
+    return new DebugSignalSnapshot(Collections.unmodifiableMap(countsByIdentifier),
+        counters[OTHER_ID].sum(), Collections.unmodifiableList(signals));
+  }
+
+  /**
+   * Drop every count and recorded signal, the error identifiers seen keep their id. Signals
+   * recorded meanwhile may be partially dropped.
+   * The ring index is not rewound, so that a signal written meanwhile cannot hold a slot against
+   * the signals recorded after the reset.
+   */
+  public void reset() {
+    for (LongAdder counter : counters) {
+      counter.reset();
+    }
+    for (int i = 0; i < recentSignals.length(); i++) {
+      recentSignalSequences.set(i, 0);
+      recentSignals.set(i, null);
+    }
+  }
+
+  int identifierId(final @Nullable String identifier) {
+    if (identifier == null) {
+      return OTHER_ID;
+    }
+    final Integer id = idsByIdentifier.get(identifier);
+    if (id != null) {
+      return id;
+    }
+    return identifierCount == MAX_IDENTIFIERS ? OTHER_ID : intern(identifier);
+  }
+
+  /**
+   * Give the next free id to an error identifier
+   *
+   * @return the id of the identifier, or the id counting every other identifier if all are taken
+   */
+  private synchronized int intern(final @NonNull String identifier) {
+    final Integer id = idsByIdentifier.get(identifier);
+    if (id != null) {
+      return id;
+    }
+    final int newId = identifierCount;
+    if (newId == MAX_IDENTIFIERS) {
+      return OTHER_ID;
+    }
+    identifiers[newId] = identifier;
+    idsByIdentifier.put(identifier, newId);
+    // published last so that readers of the count see the identifiers
+    identifierCount = newId + 1;
+    return newId;
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.function.Supplier;
+
+/**
+ * Sink for the diagnostics logged by the sdk.
+ * <p>
+ * The sdk checks {@link #isLoggable(int)} before doing any work needed only for diagnostics, such
+ * as extra package manager lookups, and messages are built lazily, so a sink which does not log a
+ * priority costs nothing for it. Register a sink with
+ * {@link #setDiagnostics(WhatsAppOtpDiagnostics)} to send the diagnostics to your own logger.
+ * </p>
+ * <p>
+ * By default diagnostics go to logcat in debug builds of the sdk and are disabled otherwise.
+ * </p>
+ */
+public interface WhatsAppOtpDiagnostics {
+
+  /**
+   * Sink which logs nothing
+   */
+  WhatsAppOtpDiagnostics DISABLED = new WhatsAppOtpDiagnostics() {
+    @Override
+    public boolean isLoggable(final int priority) {
+      return false;
+    }
+
+    @Override
+    public void log(final int priority, final @NonNull String tag,
+        final @NonNull Supplier<String> message, final @Nullable Throwable throwable) {
+    }
+  };
+
+  /**
+   * Sink which logs everything to logcat
+   */
+  WhatsAppOtpDiagnostics LOGCAT = new WhatsAppOtpDiagnostics() {
+    @Override
+    public boolean isLoggable(final int priority) {
+      return true;
+    }
+
+    @Override
+    public void log(final int priority, final @NonNull String tag,
+        final @NonNull Supplier<String> message, final @Nullable Throwable throwable) {
+      final String text = throwable == null ? message.get()
+          : message.get() + '\n' + Log.getStackTraceString(throwable);
+      Log.println(priority, tag, text);
+    }
+  };
+
+  /**
+   * @param priority priority of the message, one of the {@link Log} priority constants
+   * @return true if messages of this priority are logged
+   */
+  boolean isLoggable(int priority);
+
+  /**
+   * Log a message. Only called for priorities {@link #isLoggable(int) loggable} by this sink.
+   *
+   * @param priority  priority of the message, one of the {@link Log} priority constants
+   * @param tag       the sdk class logging the message
+   * @param message   supplier of the message
+   * @param throwable the error the message is about, if any
+   */
+  void log(int priority, @NonNull String tag, @NonNull Supplier<String> message,
+      @Nullable Throwable throwable);
+
+  /**
+   * Register the sink receiving the diagnostics of the sdk, for the whole process.
+   *
+   * @param diagnostics the sink, {@link #DISABLED} to turn diagnostics off
+   */
+  static void setDiagnostics(final @NonNull WhatsAppOtpDiagnostics diagnostics) {
+    if (diagnostics == null) {
+      throw new NullPointerException("Diagnostics cannot be null");
+    }
+    DiagnosticsHolder.diagnostics = diagnostics;
+  }
+
+  /**
+   * @return the sink receiving the diagnostics of the sdk
+   */
+  @NonNull
+  static WhatsAppOtpDiagnostics getDiagnostics() {
+    return DiagnosticsHolder.diagnostics;
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import com.whatsapp.otp.android.sdk.data.WhatsAppOtpIncomingResult;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the codes and debug signals verified by
+ * {@link WhatsAppOtpIncomingIntentHandler#processOtpCode processOtpCode} and
+ * {@link WhatsAppOtpIncomingIntentHandler#processOtpDebugSignals processOtpDebugSignals} to any
+ * number of subscribers as {@link WhatsAppOtpIncomingResult WhatsAppOtpIncomingResults}, so each
+ * of them gets the event without parsing the intent again.
+ * <p>
+ * Register the hub with
+ * {@link WhatsAppOtpIncomingIntentHandler#setEventHub(WhatsAppOtpEventHub)}. Events are delivered
+ * on the given executor, and each subscriber gets up to the buffer capacity of events ahead of
+ * its {@link Flow.Subscription#request(long) requests}. Publishing never blocks the thread
+ * processing the intent: an event which does not fit in the buffer of a subscriber is dropped
+ * for that subscriber and counted.
+ * </p>
+ */
+@RequiresApi(Build.VERSION_CODES.R)
+public final class WhatsAppOtpEventHub implements Flow.Publisher<WhatsAppOtpIncomingResult>,
+    AutoCloseable {
+
+  private final SubmissionPublisher<WhatsAppOtpIncomingResult> publisher;
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  /**
+   * Constructor
+   *
+   * @param executor       executor the subscribers are called on
+   * @param bufferCapacity events buffered per subscriber, rounded up to a power of two
+   */
+  public WhatsAppOtpEventHub(final @NonNull Executor executor, final int bufferCapacity) {
+    if (executor == null) {
+      throw new NullPointerException("Executor cannot be null");
+    }
+    if (bufferCapacity <= 0) {
+      throw new IllegalArgumentException("Buffer capacity must be positive");
+    }
+    this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super WhatsAppOtpIncomingResult> subscriber) {
+    publisher.subscribe(subscriber);
+  }
+
+  /**
+   * @return the number of subscribers
+   */
+  public int getSubscriberCount() {
+    return publisher.getNumberOfSubscribers();
+  }
+
+  /**
+   * @return the number of events dropped for subscribers whose buffer was full, counted once per
+   * subscriber
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Complete every subscription once its buffered events are delivered. Events published
+   * afterwards are ignored.
+   */
+  @Override
+  public void close() {
+    publisher.close();
+  }
+
+  void publish(final @NonNull WhatsAppOtpIncomingResult event) {
+    try {
+      publisher.offer(event, (subscriber, droppedEvent) -> {
+        droppedCount.incrementAndGet();
+        return false;
+      });
+    } catch (IllegalStateException e) {
+      // closed
+    }
+  }
+}
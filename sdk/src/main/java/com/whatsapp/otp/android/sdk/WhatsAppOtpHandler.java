@@ -10,17 +10,61 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.data.HandshakeResult;
+import com.whatsapp.otp.android.sdk.data.HandshakeSession;
+import com.whatsapp.otp.android.sdk.data.WhatsAppCapabilityReport;
+import com.whatsapp.otp.android.sdk.data.WhatsAppClientCapability;
+import com.whatsapp.otp.android.sdk.enums.HandshakeSkipReason;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Class responsible for handling intents sent to WhatsApp
  */
 public class WhatsAppOtpHandler {
 
+  private static final String TAG = WhatsAppOtpHandler.class.getSimpleName();
+
+  private static final long NO_HANDSHAKE = Long.MIN_VALUE;
+
+  /**
+   * Delay of a handshake which has not taken its rate limiter token yet
+   */
+  private static final long TOKEN_NOT_TAKEN = Long.MIN_VALUE;
+
+  private static volatile HandshakeRateLimiter handshakeRateLimiter;
+
   private final WhatsAppOtpIntentBuilder whatsAppOtpIntentBuilder;
 
+  private final WhatsAppClientCapabilityCache capabilityCache = new WhatsAppClientCapabilityCache();
+
+  /**
+   * Start time, from {@link System#nanoTime()}, of the last handshake per client type
+   */
+  private final AtomicLongArray lastHandshakeNanos = newHandshakeTimestamps();
+
+  private volatile long handshakeTtlNanos;
+
+  private volatile boolean targetedHandshake;
+
+  private volatile WhatsAppOtpMetrics metrics = WhatsAppOtpMetrics.NO_OP;
+
+  private volatile WhatsAppOtpSharedHandshakeStore sharedHandshakeStore;
+
+  private volatile WhatsAppOtpHandshakeJournal handshakeJournal;
+
+  /**
+   * Journal whose handshakes were loaded into {@link #lastHandshakeNanos}, so it is read once
+   */
+  private volatile WhatsAppOtpHandshakeJournal loadedHandshakeJournal;
+
   /**
    * Default constructor
    */
@@ -66,8 +110,386 @@ public class WhatsAppOtpHandler {
     if (context == null) {
       throw new NullPointerException("Context cannot be null");
     }
-    sendOtpIntentToWhatsApp(context, WhatsAppClientType.CONSUMER);
-    sendOtpIntentToWhatsApp(context, WhatsAppClientType.BUSINESS);
+    handshake(context, false);
+  }
+
+  /**
+   * <p>Send and otp intent to both WhatsApp consumer and business app, as
+   * {@link #sendOtpIntentToWhatsApp(Context) sendOtpIntentToWhatsApp} does, and report what was
+   * sent.</p>
+   *
+   * <p>If a handshake ttl is set with {@link #setHandshakeTtl(long, TimeUnit) setHandshakeTtl},
+   * a client which already got a handshake within the ttl - including one that is still in flight
+   * on another thread - is skipped and reported with {@link HandshakeSkipReason#DEBOUNCED}.</p>
+   *
+   * @param context application context to broadcast the intent to WhatsApp.
+   * @param force   if true the handshake is sent regardless of the handshake ttl.
+   * @return the result of the handshake.
+   */
+  @NonNull
+  public HandshakeResult sendOtpIntentToWhatsApp(final @NonNull Context context,
+      final boolean force) {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    return handshake(context, force);
+  }
+
+  /**
+   * <p>Asynchronous version of {@link #sendOtpIntentToWhatsApp(Context) sendOtpIntentToWhatsApp}.
+   * The handshake intents are built and broadcast to both WhatsApp consumer and business app on
+   * the given {@code executor}, so the calling thread is not blocked by the system calls involved.
+   * </p>
+   *
+   * @param context  application context to broadcast the intent to WhatsApp.
+   * @param executor executor the handshake runs on.
+   * @return a future completed with the result of the handshake, or completed exceptionally if
+   * the handshake failed.
+   */
+  @NonNull
+  public CompletableFuture<HandshakeResult> sendOtpIntentToWhatsAppAsync(
+      final @NonNull Context context, final @NonNull Executor executor) {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    if (executor == null) {
+      throw new NullPointerException("Executor cannot be null");
+    }
+    return sendOtpIntentToWhatsAppAsync(context, executor, false);
+  }
+
+  /**
+   * Asynchronous version of {@link #sendOtpIntentToWhatsApp(Context, boolean)
+   * sendOtpIntentToWhatsApp}.
+   *
+   * @param context  application context to broadcast the intent to WhatsApp.
+   * @param executor executor the handshake runs on.
+   * @param force    if true the handshake is sent regardless of the handshake ttl.
+   * @return a future completed with the result of the handshake, or completed exceptionally if
+   * the handshake failed.
+   */
+  @NonNull
+  public CompletableFuture<HandshakeResult> sendOtpIntentToWhatsAppAsync(
+      final @NonNull Context context, final @NonNull Executor executor, final boolean force) {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    if (executor == null) {
+      throw new NullPointerException("Executor cannot be null");
+    }
+    final CompletableFuture<HandshakeResult> deferred = new CompletableFuture<>();
+    return CompletableFuture.supplyAsync(() -> sendHandshake(context, force, false, executor,
+        deferred), executor).thenCompose(result -> isQueued(result) ? deferred
+        : CompletableFuture.completedFuture(result));
+  }
+
+  /**
+   * Limit how often handshakes are broadcast by every handler of the process. A handshake only
+   * counts against the limit once it is about to be broadcast, so handshakes whose clients are
+   * all skipped, for instance by the handshake ttl, do not count. Handshakes over the limit are
+   * reported with {@link HandshakeSkipReason#RATE_LIMITED} when dropped, or with
+   * {@link HandshakeSkipReason#QUEUED} when deferred. A deferred handshake is sent on the executor
+   * of the asynchronous variants, which complete once it is sent, or on a background thread of the
+   * sdk for the synchronous ones.
+   * <p>
+   * {@link #sendOtpIntentToWhatsApp(Context, WhatsAppClientType)}, which returns the intent it
+   * sends, is not limited.
+   * </p>
+   *
+   * @param rateLimiter the limiter, null to remove the limit
+   */
+  public static void setHandshakeRateLimiter(final @Nullable HandshakeRateLimiter rateLimiter) {
+    handshakeRateLimiter = rateLimiter;
+  }
+
+  /**
+   * Define for how long a handshake sent to a WhatsApp client is considered fresh. Handshakes
+   * requested for the same client within this time are coalesced into the previous one and not
+   * broadcast again, unless they are forced. The ttl is 0 by default, meaning every handshake is
+   * sent.
+   *
+   * @param ttl  time a handshake stays fresh, 0 to send every handshake
+   * @param unit unit of the {@code ttl}
+   */
+  public void setHandshakeTtl(final long ttl, final @NonNull TimeUnit unit) {
+    if (ttl < 0) {
+      throw new IllegalArgumentException("Handshake ttl cannot be negative");
+    }
+    this.handshakeTtlNanos = unit.toNanos(ttl);
+  }
+
+  /**
+   * Define if handshakes are only sent to WhatsApp clients which can receive them. When enabled,
+   * {@link #sendOtpIntentToWhatsApp(Context) sendOtpIntentToWhatsApp} and its variants check the
+   * cached {@link #getWhatsAppClientCapability(Context, WhatsAppClientType) capability} of each
+   * client first and skip clients which are not installed or do not support the handshake,
+   * reporting them with {@link HandshakeSkipReason#NOT_INSTALLED} or
+   * {@link HandshakeSkipReason#HANDSHAKE_NOT_SUPPORTED}. Disabled by default.
+   *
+   * @param targetedHandshake true to only send handshakes to clients which support them
+   */
+  public void setTargetedHandshake(final boolean targetedHandshake) {
+    this.targetedHandshake = targetedHandshake;
+  }
+
+  /**
+   * Register a listener for the timings of the handshakes and probes done by this handler: intent
+   * build, PendingIntent creation, broadcast, capability lookups and batched probes.
+   *
+   * @param metrics the listener, {@link WhatsAppOtpMetrics#NO_OP} to stop listening
+   */
+  public void setMetrics(final @NonNull WhatsAppOtpMetrics metrics) {
+    if (metrics == null) {
+      throw new NullPointerException("Metrics cannot be null");
+    }
+    this.metrics = metrics;
+    this.whatsAppOtpIntentBuilder.setMetrics(metrics);
+    this.capabilityCache.setMetrics(metrics);
+  }
+
+  /**
+   * Share the handshakes sent by this handler with the other processes of the app. With a
+   * handshake ttl set, a client which got a handshake from any process within the ttl is skipped
+   * and reported with {@link HandshakeSkipReason#DEBOUNCED}.
+   *
+   * @param sharedHandshakeStore the store, null to stop sharing
+   */
+  public void setSharedHandshakeStore(
+      final @Nullable WhatsAppOtpSharedHandshakeStore sharedHandshakeStore) {
+    this.sharedHandshakeStore = sharedHandshakeStore;
+  }
+
+  /**
+   * Record the handshakes sent by this handler in a journal which survives process death. With a
+   * handshake ttl set, a client which the journal shows got a handshake within the ttl before this
+   * process started is skipped and reported with {@link HandshakeSkipReason#DEBOUNCED}. The
+   * journal is only read for the first handshake which is not forced.
+   *
+   * @param handshakeJournal the journal, null to stop recording
+   */
+  public void setHandshakeJournal(
+      final @Nullable WhatsAppOtpHandshakeJournal handshakeJournal) {
+    this.handshakeJournal = handshakeJournal;
+  }
+
+  @NonNull
+  private HandshakeResult handshake(final @NonNull Context context, final boolean force) {
+    return sendHandshake(context, force, false, null, null);
+  }
+
+  /**
+   * Send the deferred handshake of {@code sendHandshake} on the {@code executor} once its token
+   * is available. The scheduler only hands the handshake over, it does not send it.
+   *
+   * @param executor executor sending the handshake, null for the sdk background thread
+   * @param deferred future completed with the result, null to only log a failure
+   */
+  private void scheduleDeferredHandshake(final @NonNull Context context, final boolean force,
+      final long delayNanos, final @Nullable Executor executor,
+      final @Nullable CompletableFuture<HandshakeResult> deferred) {
+    SdkScheduler.get().schedule(() -> {
+      try {
+        (executor != null ? executor : SdkExecutor.get())
+            .execute(() -> sendDeferredHandshake(context, force, deferred));
+      } catch (RuntimeException e) {
+        onDeferredHandshakeFailed(deferred, e);
+      }
+    }, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void sendDeferredHandshake(final @NonNull Context context, final boolean force,
+      final @Nullable CompletableFuture<HandshakeResult> deferred) {
+    try {
+      final HandshakeResult result = sendHandshake(context, force, true, null, null);
+      if (deferred != null) {
+        deferred.complete(result);
+      }
+    } catch (RuntimeException e) {
+      onDeferredHandshakeFailed(deferred, e);
+    }
+  }
+
+  private static void onDeferredHandshakeFailed(
+      final @Nullable CompletableFuture<HandshakeResult> deferred, final RuntimeException e) {
+    if (deferred != null) {
+      deferred.completeExceptionally(e);
+      return;
+    }
+    final WhatsAppOtpDiagnostics diagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+    if (diagnostics.isLoggable(Log.WARN)) {
+      diagnostics.log(Log.WARN, TAG, () -> "Deferred handshake failed", e);
+    }
+  }
+
+  private static boolean isQueued(final @NonNull HandshakeResult result) {
+    for (WhatsAppClientType type : result.getSkippedClients()) {
+      if (result.getSkipReason(type) == HandshakeSkipReason.QUEUED) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Send the handshake to every client not skipped. A rate limiter token is taken before the first
+   * broadcast, unless {@code tokenTaken}; if the handshake must be deferred, the clients are
+   * reported as queued and it is scheduled with
+   * {@link #scheduleDeferredHandshake scheduleDeferredHandshake}.
+   */
+  @NonNull
+  private HandshakeResult sendHandshake(final @NonNull Context context, final boolean force,
+      final boolean tokenTaken, final @Nullable Executor deferredExecutor,
+      final @Nullable CompletableFuture<HandshakeResult> deferred) {
+    final HandshakeResult.Builder result = new HandshakeResult.Builder();
+    final long handshakeStart = System.nanoTime();
+    final HandshakeRateLimiter rateLimiter = tokenTaken ? null : handshakeRateLimiter;
+    long delayNanos = rateLimiter == null ? 0 : TOKEN_NOT_TAKEN;
+    final long ttlNanos = this.handshakeTtlNanos;
+    final boolean targeted = this.targetedHandshake;
+    final WhatsAppOtpMetrics metrics = this.metrics;
+    final WhatsAppOtpSharedHandshakeStore sharedStore = this.sharedHandshakeStore;
+    final WhatsAppOtpHandshakeJournal journal = this.handshakeJournal;
+    final long handshakeMillis = sharedStore == null && journal == null ? 0
+        : System.currentTimeMillis();
+    if (journal != null && !force && ttlNanos != 0 && loadedHandshakeJournal != journal) {
+      loadJournaledHandshakes(journal, handshakeMillis, handshakeStart);
+    }
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      if (targeted) {
+        final HandshakeSkipReason unsupportedReason = getUnsupportedReason(context, type);
+        if (unsupportedReason != null) {
+          result.addSkippedClient(type, unsupportedReason);
+          continue;
+        }
+      }
+      final int index = type.ordinal();
+      final long previousHandshake = lastHandshakeNanos.get(index);
+      if (force || ttlNanos == 0) {
+        lastHandshakeNanos.set(index, handshakeStart);
+      } else if (isFresh(previousHandshake, handshakeStart, ttlNanos)
+          || !lastHandshakeNanos.compareAndSet(index, previousHandshake, handshakeStart)) {
+        result.addSkippedClient(type, HandshakeSkipReason.DEBOUNCED);
+        continue;
+      }
+      WhatsAppOtpSharedHandshakeStore.Slot previousSlot = null;
+      if (sharedStore != null) {
+        previousSlot = force || ttlNanos == 0
+            ? sharedStore.recordHandshake(type, handshakeMillis)
+            : sharedStore.tryRecordHandshake(type, handshakeMillis,
+                TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        if (previousSlot == null) {
+          // another process sent it within the ttl
+          lastHandshakeNanos.compareAndSet(index, handshakeStart, previousHandshake);
+          result.addSkippedClient(type, HandshakeSkipReason.DEBOUNCED);
+          continue;
+        }
+      }
+      if (delayNanos == TOKEN_NOT_TAKEN) {
+        delayNanos = rateLimiter.acquire(System.nanoTime());
+      }
+      if (delayNanos != 0) {
+        releaseHandshake(type, handshakeStart, previousHandshake, sharedStore, handshakeMillis,
+            previousSlot);
+        result.addSkippedClient(type, delayNanos == HandshakeRateLimiter.REJECTED
+            ? HandshakeSkipReason.RATE_LIMITED : HandshakeSkipReason.QUEUED);
+        continue;
+      }
+      try {
+        final long buildStart = System.nanoTime();
+        final Intent intent = this.whatsAppOtpIntentBuilder.create(context, type);
+        final long broadcastStart = System.nanoTime();
+        broadcast(context, type, intent);
+        final long broadcastEnd = System.nanoTime();
+        WhatsAppOtpLatencyTracker.getInstance().onHandshakeSent(type, handshakeStart);
+        if (journal != null) {
+          journal.onHandshakeSent(type, handshakeMillis);
+        }
+        result.addTargetedClient(type, broadcastStart - buildStart, broadcastEnd - broadcastStart);
+        metrics.onIntentBuilt(type, broadcastStart - buildStart);
+        metrics.onBroadcastSent(type, broadcastEnd - broadcastStart);
+      } catch (RuntimeException e) {
+        // let the next handshake go through since this one did not reach WhatsApp
+        releaseHandshake(type, handshakeStart, previousHandshake, sharedStore, handshakeMillis,
+            previousSlot);
+        throw e;
+      }
+    }
+    if (delayNanos > 0) {
+      // scheduled once the handshakes are released so the deferred one is not debounced by them
+      scheduleDeferredHandshake(context, force, delayNanos, deferredExecutor, deferred);
+    }
+    return result.setTotalDurationNanos(System.nanoTime() - handshakeStart).build();
+  }
+
+  /**
+   * Undo the handshake recorded for the client by {@code sendHandshake}, putting back the
+   * handshake and the session it replaced
+   */
+  private void releaseHandshake(final @NonNull WhatsAppClientType type,
+      final long handshakeStart, final long previousHandshake,
+      final @Nullable WhatsAppOtpSharedHandshakeStore sharedStore, final long handshakeMillis,
+      final @Nullable WhatsAppOtpSharedHandshakeStore.Slot previousSlot) {
+    lastHandshakeNanos.compareAndSet(type.ordinal(), handshakeStart, previousHandshake);
+    if (sharedStore != null && previousSlot != null) {
+      sharedStore.restoreHandshake(type, handshakeMillis, previousSlot);
+    }
+  }
+
+  /**
+   * Broadcast the handshake intent to the client and to its variants registered in
+   * {@link WhatsAppClientRegistry}
+   */
+  private static void broadcast(final @NonNull Context context,
+      final @NonNull WhatsAppClientType type, final @NonNull Intent intent) {
+    context.sendBroadcast(intent);
+    final String[] packages = WhatsAppClientRegistry.packages(type);
+    for (int i = 1; i < packages.length; i++) {
+      context.sendBroadcast(new Intent(intent).setPackage(packages[i]));
+    }
+  }
+
+  @Nullable
+  private HandshakeSkipReason getUnsupportedReason(final @NonNull Context context,
+      final @NonNull WhatsAppClientType type) {
+    final WhatsAppClientCapability capability = capabilityCache.get(context, type);
+    if (!capability.installed) {
+      return HandshakeSkipReason.NOT_INSTALLED;
+    }
+    return capability.handshakeSupported ? null : HandshakeSkipReason.HANDSHAKE_NOT_SUPPORTED;
+  }
+
+  /**
+   * Set the time of the handshakes the journal shows were sent before this process started, for
+   * the clients with no handshake from this process yet. The journal is read once, the handshakes
+   * are then debounced like the ones sent by this process.
+   */
+  private void loadJournaledHandshakes(final @NonNull WhatsAppOtpHandshakeJournal journal,
+      final long nowMillis, final long nowNanos) {
+    final HandshakeSession[] sessions = journal.getOpenSessions();
+    for (int i = 0; i < sessions.length; i++) {
+      final HandshakeSession session = sessions[i];
+      // a session in the future means the clock went back, it is not trusted
+      final long ageMillis = session == null ? -1 : nowMillis - session.timestampMillis;
+      if (ageMillis >= 0) {
+        // converted to the System.nanoTime() base of the handshakes sent by this process
+        lastHandshakeNanos.compareAndSet(i, NO_HANDSHAKE,
+            nowNanos - TimeUnit.MILLISECONDS.toNanos(ageMillis));
+      }
+    }
+    loadedHandshakeJournal = journal;
+  }
+
+  private static boolean isFresh(final long handshakeNanos, final long now, final long ttlNanos) {
+    return handshakeNanos != NO_HANDSHAKE && now - handshakeNanos < ttlNanos;
+  }
+
+  @NonNull
+  private static AtomicLongArray newHandshakeTimestamps() {
+    final AtomicLongArray timestamps = new AtomicLongArray(WhatsAppClientType.values().length);
+    for (int i = 0; i < timestamps.length(); i++) {
+      timestamps.set(i, NO_HANDSHAKE);
+    }
+    return timestamps;
   }
 
   /**
@@ -90,8 +512,18 @@ public class WhatsAppOtpHandler {
    */
   public Intent sendOtpIntentToWhatsApp(final @NonNull Context context,
       final @NonNull WhatsAppClientType type) {
+    final long handshakeStart = System.nanoTime();
     Intent intent = this.whatsAppOtpIntentBuilder.create(context, type);
-    context.sendBroadcast(intent);
+    broadcast(context, type, intent);
+    WhatsAppOtpLatencyTracker.getInstance().onHandshakeSent(type, handshakeStart);
+    final WhatsAppOtpSharedHandshakeStore sharedStore = this.sharedHandshakeStore;
+    if (sharedStore != null) {
+      sharedStore.recordHandshake(type, System.currentTimeMillis());
+    }
+    final WhatsAppOtpHandshakeJournal journal = this.handshakeJournal;
+    if (journal != null) {
+      journal.onHandshakeSent(type, System.currentTimeMillis());
+    }
     return intent;
   }
 
@@ -110,8 +542,12 @@ public class WhatsAppOtpHandler {
    * otherwise
    */
   public boolean isWhatsAppOtpHandshakeSupported(final @NonNull Context context) {
-    return isWhatsAppOtpHandshakeSupported(context, WhatsAppClientType.CONSUMER)
-        || isWhatsAppOtpHandshakeSupported(context, WhatsAppClientType.BUSINESS);
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      if (isWhatsAppOtpHandshakeSupported(context, type)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -124,6 +560,9 @@ public class WhatsAppOtpHandler {
    * If WhatsApp is not installed, this function will return false.
    * <p/>
    * <p>
+   * The result is cached, see {@link #getWhatsAppClientCapability(Context, WhatsAppClientType)}.
+   * </p>
+   * <p>
    * You need to have the following definition in your AndroidManifest for this function to work:
    * </p>
    * <pre>
@@ -140,12 +579,7 @@ public class WhatsAppOtpHandler {
    */
   public boolean isWhatsAppOtpHandshakeSupported(final @NonNull Context context,
       final @NonNull WhatsAppClientType type) {
-    final Intent intent = new Intent();
-    intent.setPackage(type.getPackageName());
-    intent.setAction("com.whatsapp.otp.OTP_REQUESTED");
-    PackageManager packageManager = context.getPackageManager();
-    List<ResolveInfo> receivers = packageManager.queryBroadcastReceivers(intent, 0);
-    return !receivers.isEmpty();
+    return getWhatsAppClientCapability(context, type).handshakeSupported;
   }
 
 
@@ -166,13 +600,20 @@ public class WhatsAppOtpHandler {
    * @return true if WhatsApp is installed or false otherwise
    */
   public boolean isWhatsAppInstalled(final @NonNull Context context) {
-    return isWhatsAppInstalled(context, WhatsAppClientType.CONSUMER)
-        || isWhatsAppInstalled(context, WhatsAppClientType.BUSINESS);
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      if (isWhatsAppInstalled(context, type)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
    * Check if WhatsApp is installed on the device.
    * <p>
+   * The result is cached, see {@link #getWhatsAppClientCapability(Context, WhatsAppClientType)}.
+   * </p>
+   * <p>
    * You need to have the following definition in your AndroidManifest for this function to work
    * properly:
    * </p>
@@ -189,12 +630,163 @@ public class WhatsAppOtpHandler {
    */
   public boolean isWhatsAppInstalled(final @NonNull Context context,
       final @NonNull WhatsAppClientType type) {
-    try {
-      PackageManager packageManager = context.getPackageManager();
-      packageManager.getPackageInfo(type.getPackageName(), 0);
-      return true;
-    } catch (PackageManager.NameNotFoundException e) {
-      return false;
+    return getWhatsAppClientCapability(context, type).installed;
+  }
+
+  /**
+   * Get what is known about a WhatsApp client: if it is installed, if it supports the otp
+   * handshake and its version code.
+   * <p>
+   * The capability is cached in memory after the first lookup, so repeated calls do not go to the
+   * {@link PackageManager}. The cache is invalidated when WhatsApp consumer or
+   * business is installed, updated or removed.
+   * </p>
+   * <p>
+   * You need to have the following definition in your AndroidManifest for this function to work
+   * properly:
+   * </p>
+   * <pre>
+   *     &#60;queries&#62;
+   *         &#60;package android:name="com.whatsapp"/&#62;
+   *         &#60;package android:name="com.whatsapp.w4b"/&#62;
+   *     &#60;/queries&#62;
+   * </pre>
+   *
+   * @param context application context
+   * @param type    WhatsApp type, can be either consumer or business
+   * @return the capability of the WhatsApp client
+   */
+  @NonNull
+  public WhatsAppClientCapability getWhatsAppClientCapability(final @NonNull Context context,
+      final @NonNull WhatsAppClientType type) {
+    return capabilityCache.get(context, type);
+  }
+
+  /**
+   * Check which WhatsApp clients are installed and which support the otp handshake, for both
+   * WhatsApp consumer and business at once.
+   * <p>
+   * A single query for receivers of the "com.whatsapp.otp.OTP_REQUESTED" action answers the
+   * handshake support of every client. A client with such a receiver is installed, so the
+   * package is only looked up for clients that do not have the receiver.
+   * </p>
+   * <p>
+   * You need to have the following definition in your AndroidManifest for this function to work
+   * properly:
+   * </p>
+   * <pre>
+   *     &#60;queries&#62;
+   *         &#60;package android:name="com.whatsapp"/&#62;
+   *         &#60;package android:name="com.whatsapp.w4b"/&#62;
+   *     &#60;/queries&#62;
+   * </pre>
+   *
+   * @param context application context
+   * @return report of installed and handshake supporting WhatsApp clients
+   */
+  @NonNull
+  public WhatsAppCapabilityReport probe(final @NonNull Context context) {
+    final WhatsAppOtpMetrics metrics = this.metrics;
+    if (metrics == WhatsAppOtpMetrics.NO_OP) {
+      return probeClients(context);
     }
+    final long probeStart = System.nanoTime();
+    final WhatsAppCapabilityReport report = probeClients(context);
+    metrics.onProbe(System.nanoTime() - probeStart);
+    return report;
+  }
+
+  @NonNull
+  private static WhatsAppCapabilityReport probeClients(final @NonNull Context context) {
+    final PackageManager packageManager = context.getPackageManager();
+    final Intent intent = new Intent(WhatsAppOtpIntentBuilder.OTP_REQUESTED_ACTION);
+    final EnumSet<WhatsAppClientType> handshakeSupported = EnumSet.noneOf(
+        WhatsAppClientType.class);
+    for (ResolveInfo receiver : packageManager.queryBroadcastReceivers(intent, 0)) {
+      final WhatsAppClientType type = getReceiverClientType(receiver);
+      if (type != null) {
+        handshakeSupported.add(type);
+      }
+    }
+    final EnumSet<WhatsAppClientType> installed = EnumSet.copyOf(handshakeSupported);
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      if (!installed.contains(type) && isPackageInstalled(packageManager, type)) {
+        installed.add(type);
+      }
+    }
+    return new WhatsAppCapabilityReport(installed, handshakeSupported);
+  }
+
+  @Nullable
+  private static WhatsAppClientType getReceiverClientType(final ResolveInfo receiver) {
+    if (receiver == null || receiver.activityInfo == null) {
+      return null;
+    }
+    return WhatsAppClientRegistry.getClientType(receiver.activityInfo.packageName);
+  }
+
+  private static boolean isPackageInstalled(final PackageManager packageManager,
+      final WhatsAppClientType type) {
+    for (String packageName : WhatsAppClientRegistry.packages(type)) {
+      try {
+        packageManager.getPackageInfo(packageName, 0);
+        return true;
+      } catch (PackageManager.NameNotFoundException e) {
+        // try the next variant
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Do ahead of time, on the given {@code executor}, the work the first handshake of the process
+   * would otherwise pay for: the capability lookups of every WhatsApp client and the creation of
+   * the handshake intents and their PendingIntents. Call it for instance when the screen asking
+   * for the phone number opens, so that a later
+   * {@link #sendOtpIntentToWhatsApp(Context) sendOtpIntentToWhatsApp} mostly broadcasts.
+   * <p>
+   * Nothing is sent to WhatsApp. The PendingIntents are reused for as long as the
+   * {@link WhatsAppOtpIntentBuilder} keeps them. The WhatsApp package details logged when
+   * {@link WhatsAppOtpDiagnostics} log at debug level are not prewarmed: they are looked up again
+   * whenever the builder creates a new PendingIntent, including when the prewarmed one expires.
+   * </p>
+   *
+   * @param context  application context
+   * @param executor executor the work runs on
+   * @return a future completed with the capabilities found, or completed exceptionally if the
+   * work failed
+   */
+  @NonNull
+  public CompletableFuture<WhatsAppCapabilityReport> prewarm(final @NonNull Context context,
+      final @NonNull Executor executor) {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    if (executor == null) {
+      throw new NullPointerException("Executor cannot be null");
+    }
+    return CompletableFuture.supplyAsync(() -> {
+      final EnumSet<WhatsAppClientType> installed = EnumSet.noneOf(WhatsAppClientType.class);
+      final EnumSet<WhatsAppClientType> handshakeSupported = EnumSet.noneOf(
+          WhatsAppClientType.class);
+      for (WhatsAppClientType type : WhatsAppClientType.values()) {
+        final WhatsAppClientCapability capability = capabilityCache.get(context, type);
+        if (capability.installed) {
+          installed.add(type);
+        }
+        if (capability.handshakeSupported) {
+          handshakeSupported.add(type);
+        }
+        this.whatsAppOtpIntentBuilder.create(context, type);
+      }
+      return new WhatsAppCapabilityReport(installed, handshakeSupported);
+    }, executor);
+  }
+
+  /**
+   * Drop the cached WhatsApp capabilities so the next check queries the package manager again.
+   */
+  public void invalidateCapabilityCache() {
+    capabilityCache.invalidate();
   }
 }
@@ -0,0 +1,468 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.data.HandshakeSession;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of the handshake sessions of the app, kept in a small file so it survives
+ * the process being killed while the user is in WhatsApp.
+ * <p>
+ * Register the journal with
+ * {@link WhatsAppOtpHandler#setHandshakeJournal(WhatsAppOtpHandshakeJournal)} to record every
+ * handshake sent, and with
+ * {@link WhatsAppOtpIncomingIntentHandler#setHandshakeJournal(WhatsAppOtpHandshakeJournal)} so a
+ * code received by a new process is matched to the handshake sent before. With a handshake ttl
+ * set, a new process also skips a handshake the journal shows was sent within the ttl.
+ * </p>
+ * <p>
+ * Each session is a fixed size record holding the client type, the time and a session id, and is
+ * followed by a completion record once its code arrives. Sending a handshake only keeps its
+ * session in memory: it is appended to the file on a background thread of the sdk, or earlier if
+ * the journal is read meanwhile. Records are written without syncing them to disk, which survives
+ * process death. The journal is only read when needed, in one read of at most
+ * {@value #MAX_RECORDS} records. Once it reaches that size, its open sessions are written to a new
+ * file which atomically replaces it, so a process killed while compacting leaves either journal
+ * intact. Sessions older than {@value #SESSION_EXPIRATION_MINUTES} minutes are ignored.
+ * </p>
+ */
+public final class WhatsAppOtpHandshakeJournal {
+
+  private static final String TAG = WhatsAppOtpHandshakeJournal.class.getSimpleName();
+
+  private static final String FILE_NAME = "whatsapp_otp_handshake_journal";
+
+  /**
+   * Records kept before the journal is compacted
+   */
+  static final int MAX_RECORDS = 128;
+
+  static final long SESSION_EXPIRATION_MINUTES = 60;
+
+  private static final long SESSION_EXPIRATION_MILLIS =
+      TimeUnit.MINUTES.toMillis(SESSION_EXPIRATION_MINUTES);
+
+  /**
+   * kind (1 byte), client type (1 byte), session id (8 bytes), timestamp (8 bytes)
+   */
+  static final int RECORD_SIZE = 18;
+
+  private static final byte STARTED = 1;
+
+  private static final byte COMPLETED = 2;
+
+  private static final long NO_SESSION = 0;
+
+  /**
+   * Journals opened in this process by canonical path. Each file must be opened once per process
+   * because file locks are held by the process, not by the thread.
+   */
+  private static final Map<String, WhatsAppOtpHandshakeJournal> journals =
+      new ConcurrentHashMap<>();
+
+  private final File file;
+
+  /**
+   * File the compacted journal is written to before replacing the journal
+   */
+  private final File compactedFile;
+
+  /**
+   * Channel of a lock file which is never replaced, locked around every access to the journal
+   * since the journal file itself is replaced when compacted
+   */
+  private final FileChannel lockChannel;
+
+  /**
+   * Buffer reused for every read and write, guarded by the journal lock
+   */
+  private final ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORDS * RECORD_SIZE);
+
+  /**
+   * Session id of the handshake not written yet per client type ordinal, {@link #NO_SESSION} if
+   * there is none. Guarded by the journal lock, like {@link #pendingTimestamps}.
+   */
+  private final long[] pendingSessionIds = new long[WhatsAppClientType.values().length];
+
+  private final long[] pendingTimestamps = new long[WhatsAppClientType.values().length];
+
+  /**
+   * Whether a {@link #flush()} is scheduled on the sdk background thread, guarded by the journal
+   * lock
+   */
+  private boolean flushScheduled;
+
+  private WhatsAppOtpHandshakeJournal(final File file, final FileChannel lockChannel) {
+    this.file = file;
+    this.compactedFile = new File(file.getPath() + ".compacted");
+    this.lockChannel = lockChannel;
+  }
+
+  /**
+   * Open the journal of the app, kept in its no backup files directory.
+   *
+   * @param context context
+   * @return the journal, the same instance for every call in the process
+   * @throws IOException if the file cannot be opened
+   */
+  @NonNull
+  public static WhatsAppOtpHandshakeJournal open(final @NonNull Context context)
+      throws IOException {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    return open(new File(context.getNoBackupFilesDir(), FILE_NAME));
+  }
+
+  /**
+   * Open a journal kept in the given file. A lock file is kept next to it.
+   *
+   * @param file file of the journal
+   * @return the journal, the same instance for every call with the same file in the process
+   * @throws IOException if the file cannot be opened
+   */
+  @NonNull
+  public static WhatsAppOtpHandshakeJournal open(final @NonNull File file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("File cannot be null");
+    }
+    final String path = file.getCanonicalPath();
+    synchronized (journals) {
+      WhatsAppOtpHandshakeJournal journal = journals.get(path);
+      if (journal == null) {
+        final File canonicalFile = new File(path);
+        journal = new WhatsAppOtpHandshakeJournal(canonicalFile,
+            new RandomAccessFile(path + ".lock", "rw").getChannel());
+        journals.put(path, journal);
+      }
+      return journal;
+    }
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return the latest handshake to the client still waiting for its code, or null if there is
+   * none
+   */
+  @Nullable
+  public synchronized HandshakeSession getOpenSession(final @NonNull WhatsAppClientType type) {
+    final long nowMillis = System.currentTimeMillis();
+    final int index = type.ordinal();
+    if (pendingSessionIds[index] != NO_SESSION) {
+      // newer than any session in the file
+      final HandshakeSession session = new HandshakeSession(pendingSessionIds[index], type,
+          pendingTimestamps[index]);
+      return isExpired(session, nowMillis) ? null : session;
+    }
+    return getOpenSessions()[index];
+  }
+
+  /**
+   * Read every open session in one read of the journal.
+   *
+   * @return the latest handshake to each client still waiting for its code, by client type
+   * ordinal, null for the clients which have none
+   */
+  @NonNull
+  synchronized HandshakeSession[] getOpenSessions() {
+    final long nowMillis = System.currentTimeMillis();
+    HandshakeSession[] sessions;
+    try (FileLock ignored = lockChannel.lock(0, Long.MAX_VALUE, true);
+        FileChannel channel = openJournal()) {
+      read(channel);
+      sessions = scanOpenSessions(nowMillis);
+    } catch (IOException e) {
+      logFailure(e);
+      sessions = new HandshakeSession[WhatsAppClientType.values().length];
+    }
+    final WhatsAppClientType[] types = WhatsAppClientType.values();
+    for (int i = 0; i < sessions.length; i++) {
+      if (pendingSessionIds[i] != NO_SESSION) {
+        final HandshakeSession session = new HandshakeSession(pendingSessionIds[i], types[i],
+            pendingTimestamps[i]);
+        sessions[i] = isExpired(session, nowMillis) ? null : session;
+      }
+    }
+    return sessions;
+  }
+
+  /**
+   * Record a handshake sent to the client. The session is kept in memory and written to the file
+   * on the sdk background thread.
+   */
+  void onHandshakeSent(final @NonNull WhatsAppClientType type, final long nowMillis) {
+    long sessionId;
+    do {
+      sessionId = ThreadLocalRandom.current().nextLong();
+    } while (sessionId == NO_SESSION);
+    final boolean scheduleFlush;
+    synchronized (this) {
+      pendingSessionIds[type.ordinal()] = sessionId;
+      pendingTimestamps[type.ordinal()] = nowMillis;
+      scheduleFlush = !flushScheduled;
+      flushScheduled = true;
+    }
+    if (scheduleFlush) {
+      SdkExecutor.get().execute(this::flush);
+    }
+  }
+
+  /**
+   * Write the sessions kept in memory to the file
+   */
+  synchronized void flush() {
+    flushScheduled = false;
+    if (!hasPendingSessions()) {
+      return;
+    }
+    try (FileLock ignored = lockChannel.lock()) {
+      FileChannel channel = openJournal();
+      try {
+        channel = writePendingSessions(channel);
+      } finally {
+        channel.close();
+      }
+    } catch (IOException e) {
+      logFailure(e);
+    }
+  }
+
+  /**
+   * Complete the open session of the client.
+   *
+   * @return the completed session, or null if there was none
+   */
+  @Nullable
+  synchronized HandshakeSession completeSession(final @NonNull WhatsAppClientType type,
+      final long nowMillis) {
+    try (FileLock ignored = lockChannel.lock()) {
+      // the journal is opened once, the channel only changes if the journal is compacted
+      FileChannel channel = openJournal();
+      try {
+        channel = writePendingSessions(channel);
+        read(channel);
+        final HandshakeSession session = scanOpenSessions(nowMillis)[type.ordinal()];
+        if (session != null) {
+          channel = append(channel, COMPLETED, type, session.sessionId, nowMillis);
+        }
+        return session;
+      } finally {
+        channel.close();
+      }
+    } catch (IOException e) {
+      logFailure(e);
+      return null;
+    }
+  }
+
+  private boolean hasPendingSessions() {
+    for (long sessionId : pendingSessionIds) {
+      if (sessionId != NO_SESSION) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Append the sessions kept in memory. Must hold the exclusive file lock.
+   *
+   * @return the channel of the journal to use from now on, see
+   * {@link #append(FileChannel, byte, WhatsAppClientType, long, long) append}
+   */
+  @NonNull
+  private FileChannel writePendingSessions(final @NonNull FileChannel channel)
+      throws IOException {
+    FileChannel journalChannel = channel;
+    final WhatsAppClientType[] types = WhatsAppClientType.values();
+    try {
+      for (int i = 0; i < pendingSessionIds.length; i++) {
+        final long sessionId = pendingSessionIds[i];
+        if (sessionId != NO_SESSION) {
+          // forgotten even if the write fails, so a broken file is not retried forever
+          pendingSessionIds[i] = NO_SESSION;
+          journalChannel = append(journalChannel, STARTED, types[i], sessionId,
+              pendingTimestamps[i]);
+        }
+      }
+      return journalChannel;
+    } catch (IOException | RuntimeException e) {
+      // the caller only closes the channel it passed
+      if (journalChannel != channel) {
+        journalChannel.close();
+      }
+      throw e;
+    }
+  }
+
+  @NonNull
+  private FileChannel openJournal() throws IOException {
+    return new RandomAccessFile(file, "rw").getChannel();
+  }
+
+  /**
+   * Read the journal into the buffer, dropping a record torn by a process killed while writing it.
+   * Only the last {@value #MAX_RECORDS} records are read.
+   *
+   * @return the number of bytes of complete records in the file
+   */
+  private long read(final FileChannel channel) throws IOException {
+    final long size = completeRecordsSize(channel);
+    final long start = Math.max(0, size - buffer.capacity());
+    buffer.clear();
+    buffer.limit((int) (size - start));
+    long position = start;
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+    }
+    buffer.flip();
+    return size;
+  }
+
+  /**
+   * @return the open session of each client type found in the buffer, by ordinal
+   */
+  private HandshakeSession[] scanOpenSessions(final long nowMillis) {
+    final WhatsAppClientType[] types = WhatsAppClientType.values();
+    final HandshakeSession[] sessions = new HandshakeSession[types.length];
+    while (buffer.remaining() >= RECORD_SIZE) {
+      final byte kind = buffer.get();
+      final int ordinal = buffer.get();
+      final long sessionId = buffer.getLong();
+      final long timestamp = buffer.getLong();
+      if (ordinal < 0 || ordinal >= types.length) {
+        continue;
+      }
+      applyRecord(sessions, kind, types[ordinal], sessionId, timestamp);
+    }
+    for (int i = 0; i < sessions.length; i++) {
+      if (sessions[i] != null && isExpired(sessions[i], nowMillis)) {
+        sessions[i] = null;
+      }
+    }
+    return sessions;
+  }
+
+  private static void applyRecord(final HandshakeSession[] sessions, final byte kind,
+      final WhatsAppClientType type, final long sessionId, final long timestamp) {
+    final int ordinal = type.ordinal();
+    if (kind == STARTED) {
+      sessions[ordinal] = new HandshakeSession(sessionId, type, timestamp);
+    } else if (kind == COMPLETED && sessions[ordinal] != null
+        && sessions[ordinal].sessionId == sessionId) {
+      sessions[ordinal] = null;
+    }
+  }
+
+  private static boolean isExpired(final HandshakeSession session, final long nowMillis) {
+    final long age = nowMillis - session.timestampMillis;
+    return age < 0 || age >= SESSION_EXPIRATION_MILLIS;
+  }
+
+  private static long completeRecordsSize(final FileChannel channel) throws IOException {
+    final long size = channel.size();
+    return size - size % RECORD_SIZE;
+  }
+
+  /**
+   * Append a record, compacting the journal instead when it is full. Must hold the exclusive file
+   * lock.
+   *
+   * @return the channel of the journal to use from now on: {@code channel}, or the channel of the
+   * compacted journal which replaced it, in which case {@code channel} is closed
+   */
+  @NonNull
+  private FileChannel append(final @NonNull FileChannel channel, final byte kind,
+      final WhatsAppClientType type, final long sessionId, final long timestamp)
+      throws IOException {
+    final long size = completeRecordsSize(channel);
+    if (size + RECORD_SIZE <= buffer.capacity()) {
+      buffer.clear();
+      putRecord(kind, type, sessionId, timestamp);
+      buffer.flip();
+      write(channel, size);
+      return channel;
+    }
+    read(channel);
+    final HandshakeSession[] sessions = scanOpenSessions(timestamp);
+    applyRecord(sessions, kind, type, sessionId, timestamp);
+    final FileChannel compactedChannel = compact(sessions);
+    channel.close();
+    return compactedChannel;
+  }
+
+  /**
+   * Replace the journal with a new file holding the {@code sessions} only. The new file is
+   * written and synced first, then renamed over the journal, which is atomic.
+   *
+   * @return the open channel of the new journal
+   */
+  @NonNull
+  private FileChannel compact(final HandshakeSession[] sessions) throws IOException {
+    buffer.clear();
+    for (HandshakeSession session : sessions) {
+      if (session != null) {
+        putRecord(STARTED, session.clientType, session.sessionId, session.timestampMillis);
+      }
+    }
+    buffer.flip();
+    final FileChannel channel = new RandomAccessFile(compactedFile, "rw").getChannel();
+    try {
+      channel.truncate(0);
+      write(channel, 0);
+      channel.force(false);
+      if (!compactedFile.renameTo(file)) {
+        throw new IOException("Could not replace " + file + " with its compacted journal");
+      }
+      return channel;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void putRecord(final byte kind, final WhatsAppClientType type, final long sessionId,
+      final long timestamp) {
+    buffer.put(kind);
+    buffer.put((byte) type.ordinal());
+    buffer.putLong(sessionId);
+    buffer.putLong(timestamp);
+  }
+
+  private void write(final FileChannel channel, final long position) throws IOException {
+    long writePosition = position;
+    while (buffer.hasRemaining()) {
+      writePosition += channel.write(buffer, writePosition);
+    }
+  }
+
+  private static void logFailure(final IOException exception) {
+    final WhatsAppOtpDiagnostics diagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+    if (diagnostics.isLoggable(Log.WARN)) {
+      diagnostics.log(Log.WARN, TAG, () -> "Handshake journal not available", exception);
+    }
+  }
+}
@@ -7,14 +7,31 @@
 package com.whatsapp.otp.android.sdk;
 
 import android.app.PendingIntent;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.Signature;
+import android.os.Build;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import com.whatsapp.otp.android.sdk.data.DebugSignal;
+import com.whatsapp.otp.android.sdk.data.HandshakeSession;
+import com.whatsapp.otp.android.sdk.data.WhatsAppOtpIncomingResult;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppOtpError;
 import com.whatsapp.otp.android.sdk.exceptions.InvalidWhatsAppOtpIntentException;
-import java.util.Arrays;
+import com.whatsapp.otp.android.sdk.exceptions.WhatsAppOtpErrorException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -29,15 +46,174 @@ public class WhatsAppOtpIncomingIntentHandler {
 
   private static final String OTP_ERROR_MESSAGE_KEY = "error_message";
 
-  private static final WhatsAppClientType[] WA_PACKAGES = {
-      WhatsAppClientType.CONSUMER,
-      WhatsAppClientType.BUSINESS
-  };
+  private volatile WhatsAppOtpMetrics metrics = WhatsAppOtpMetrics.NO_OP;
+
+  private volatile WhatsAppOtpSharedHandshakeStore sharedHandshakeStore;
+
+  private volatile WhatsAppOtpHandshakeJournal handshakeJournal;
+
+  private volatile WhatsAppOtpCodeDeduplicator codeDeduplicator;
+
+  private volatile boolean intentPreFilter;
+
+  private volatile Consumer<WhatsAppOtpIncomingResult> eventSink;
+
+  /**
+   * Intents already published to the event sink, so an intent handled by both processOtpCode and
+   * processOtpDebugSignals is published once. Compared by identity, guarded by itself.
+   */
+  private final Set<Intent> publishedIntents = Collections.newSetFromMap(new WeakHashMap<>());
+
+  private volatile WhatsAppOtpDebugSignalAggregator debugSignalAggregator;
+
+  /**
+   * Variants accepted with {@link #acceptVariant}, by package name. Replaced as a whole on every
+   * change.
+   */
+  private volatile Map<String, AcceptedVariant> acceptedVariants = Collections.emptyMap();
+
+  /**
+   * Register a listener for the time spent verifying incoming intents and for the errors reported
+   * to the error handlers.
+   *
+   * @param metrics the listener, {@link WhatsAppOtpMetrics#NO_OP} to stop listening
+   */
+  public void setMetrics(final @NonNull WhatsAppOtpMetrics metrics) {
+    if (metrics == null) {
+      throw new NullPointerException("Metrics cannot be null");
+    }
+    this.metrics = metrics;
+  }
+
+  /**
+   * Match the codes processed by this handler to the handshakes sent by any process of the app.
+   * The session of the client in the store is ended and, if the handshake was sent by another
+   * process, its latency is recorded into {@link WhatsAppOtpLatencyTracker}.
+   *
+   * @param sharedHandshakeStore the store, null to only match handshakes sent by this process
+   */
+  public void setSharedHandshakeStore(
+      final @Nullable WhatsAppOtpSharedHandshakeStore sharedHandshakeStore) {
+    this.sharedHandshakeStore = sharedHandshakeStore;
+  }
+
+  /**
+   * Match the codes processed by this handler to the handshakes recorded in a journal, including
+   * the ones sent before this process started. The journal is only read when a code arrives and
+   * the session of the client is completed; if the handshake was not sent by this process, its
+   * latency is recorded into {@link WhatsAppOtpLatencyTracker}.
+   *
+   * @param handshakeJournal the journal, null to stop matching codes to it
+   */
+  public void setHandshakeJournal(
+      final @Nullable WhatsAppOtpHandshakeJournal handshakeJournal) {
+    this.handshakeJournal = handshakeJournal;
+  }
+
+  /**
+   * Drop codes already delivered by {@link #processOtpCode processOtpCode}, so that
+   * {@code onCodePresent} does not run twice for the same code.
+   *
+   * @param codeDeduplicator the deduplicator, null to deliver every code
+   */
+  public void setCodeDeduplicator(
+      final @Nullable WhatsAppOtpCodeDeduplicator codeDeduplicator) {
+    this.codeDeduplicator = codeDeduplicator;
+  }
+
+  /**
+   * Define if incoming intents are first checked with {@link #mayBeFromWhatsApp(Intent)}. When
+   * enabled, intents which cannot come from WhatsApp are rejected by every function of this
+   * handler without reading their caller info or looking up its creator package. Disabled by
+   * default.
+   *
+   * @param intentPreFilter true to pre-filter incoming intents
+   */
+  public void setIntentPreFilter(final boolean intentPreFilter) {
+    this.intentPreFilter = intentPreFilter;
+  }
+
+  /**
+   * Aggregate the debug signals handled by {@link #processOtpDebugSignals processOtpDebugSignals}
+   * before they are passed to the consumer. Intents without an error identifier are not counted.
+   *
+   * @param debugSignalAggregator the aggregator, null to stop aggregating
+   */
+  public void setDebugSignalAggregator(
+      final @Nullable WhatsAppOtpDebugSignalAggregator debugSignalAggregator) {
+    this.debugSignalAggregator = debugSignalAggregator;
+  }
+
+  /**
+   * Publish the codes handled by {@link #processOtpCode processOtpCode} and the debug signals
+   * handled by {@link #processOtpDebugSignals processOtpDebugSignals} to the subscribers of the
+   * {@code eventHub}, before the callbacks run. Each intent is published once, even if it is
+   * passed to both, and codes dropped by the code deduplicator are not published again.
+   *
+   * @param eventHub the hub, null to stop publishing
+   */
+  @RequiresApi(Build.VERSION_CODES.R)
+  public void setEventHub(final @Nullable WhatsAppOtpEventHub eventHub) {
+    this.eventSink = eventHub == null ? null : eventHub::publish;
+  }
+
+  /**
+   * Accept the intents sent by a variant of a WhatsApp client, such as a test or beta build.
+   * <p>
+   * By default, intents are only accepted from the packages of {@link WhatsAppClientType}. A
+   * variant is accepted as its client once it is registered with
+   * {@link WhatsAppClientRegistry#registerPackage(String, WhatsAppClientType)} and passed here, and
+   * only while the installed package is signed with the given certificate. The certificate is
+   * checked with the package manager for every intent the variant sends.
+   * </p>
+   *
+   * @param context           context used to check the signing certificate
+   * @param packageName       package name of the variant
+   * @param certificateSha256 SHA-256 digest of the signing certificate of the variant
+   */
+  public synchronized void acceptVariant(final @NonNull Context context,
+      final @NonNull String packageName, final @NonNull byte[] certificateSha256) {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    if (packageName == null) {
+      throw new NullPointerException("Package name cannot be null");
+    }
+    if (certificateSha256 == null) {
+      throw new NullPointerException("Certificate digest cannot be null");
+    }
+    final Map<String, AcceptedVariant> acceptedVariants = new HashMap<>(this.acceptedVariants);
+    acceptedVariants.put(packageName,
+        new AcceptedVariant(context.getPackageManager(), certificateSha256.clone()));
+    this.acceptedVariants = acceptedVariants;
+  }
+
+  /**
+   * Stop accepting the intents of a variant accepted with {@link #acceptVariant}.
+   *
+   * @param packageName package name of the variant
+   */
+  public synchronized void rejectVariant(final @NonNull String packageName) {
+    if (packageName == null) {
+      throw new NullPointerException("Package name cannot be null");
+    }
+    final Map<String, AcceptedVariant> acceptedVariants = new HashMap<>(this.acceptedVariants);
+    acceptedVariants.remove(packageName);
+    this.acceptedVariants = acceptedVariants;
+  }
 
   /**
    * Process code using the {@code onCodePresent} if the code is present or handle error using
    * {@code errorHandler} if the code is not present, if the intent is not valid, or if something
    * else doesn't work out while extracting the code from the {@code intent}.
+   * <p>
+   * The time elapsed since the handshake is recorded into {@link WhatsAppOtpLatencyTracker}
+   * and the futures returned by {@link #awaitOtpCode(long, TimeUnit) awaitOtpCode} are completed
+   * before {@code onCodePresent} runs. If a {@link #setCodeDeduplicator code deduplicator} is set,
+   * a code already delivered is dropped without running any callback. A code counts as
+   * delivered once {@code onCodePresent} returns, so a code whose callback threw is delivered
+   * again.
+   * </p>
    *
    * @param intent        whatsapp intent
    * @param onCodePresent function that receives the code if the code is present
@@ -46,19 +222,110 @@ public class WhatsAppOtpIncomingIntentHandler {
   public void processOtpCode(Intent intent, Consumer<String> onCodePresent,
       BiConsumer<WhatsAppOtpError, Exception> errorHandler) {
     try {
-      String otpCode = this.getOtpCodeFromWhatsAppIntent(intent);
-      if (otpCode != null) {
-        onCodePresent.accept(otpCode);
+      final PendingIntent callerInfo = getCallerInfo(intent);
+      WhatsAppOtpIncomingResult result = this.parse(intent, callerInfo);
+      if (result.code != null) {
+        final WhatsAppOtpCodeDeduplicator deduplicator = this.codeDeduplicator;
+        final long deliveryNanos = deduplicator == null ? 0 : System.nanoTime();
+        if (deduplicator != null && deduplicator.isDuplicate(result.code, callerInfo,
+            deliveryNanos)) {
+          // published when first delivered
+          markPublished(intent);
+          return;
+        }
+        onCodeDelivered(result.clientType);
+        OtpCodeWaiters.complete(result.code);
+        publish(intent, result);
+        onCodePresent.accept(result.code);
+        if (deduplicator != null) {
+          deduplicator.recordDelivery(result.code, callerInfo, deliveryNanos);
+        }
       } else {
-        errorHandler.accept(WhatsAppOtpError.OTP_CODE_NOT_RECEIVED, null);
+        OtpCodeWaiters.fail(WhatsAppOtpError.OTP_CODE_NOT_RECEIVED, null);
+        reportError(errorHandler, WhatsAppOtpError.OTP_CODE_NOT_RECEIVED, null);
       }
     } catch (InvalidWhatsAppOtpIntentException e) {
-      errorHandler.accept(WhatsAppOtpError.INTENT_IS_NOT_FROM_WHATSAPP, e);
+      reportError(errorHandler, WhatsAppOtpError.INTENT_IS_NOT_FROM_WHATSAPP, e);
     } catch (Exception e) {
-      errorHandler.accept(WhatsAppOtpError.GENERIC_EXCEPTION, e);
+      reportError(errorHandler, WhatsAppOtpError.GENERIC_EXCEPTION, e);
+    }
+  }
+
+  private void publish(final @NonNull Intent intent,
+      final @NonNull WhatsAppOtpIncomingResult result) {
+    final Consumer<WhatsAppOtpIncomingResult> eventSink = this.eventSink;
+    if (eventSink != null && markPublished(intent)) {
+      eventSink.accept(result);
+    }
+  }
+
+  /**
+   * @return false if the intent was already published
+   */
+  private boolean markPublished(final @NonNull Intent intent) {
+    if (this.eventSink == null) {
+      return false;
+    }
+    synchronized (publishedIntents) {
+      return publishedIntents.add(intent);
     }
   }
 
+  /**
+   * @return true if the code of the {@code result} was already delivered according to the code
+   * deduplicator
+   */
+  private boolean isDeliveredCode(final @NonNull WhatsAppOtpIncomingResult result,
+      final @Nullable PendingIntent callerInfo) {
+    final WhatsAppOtpCodeDeduplicator deduplicator = this.codeDeduplicator;
+    return result.code != null && deduplicator != null
+        && deduplicator.wasDelivered(result.code, callerInfo, System.nanoTime());
+  }
+
+  private void onCodeDelivered(final @NonNull WhatsAppClientType type) {
+    final WhatsAppOtpLatencyTracker latencyTracker = WhatsAppOtpLatencyTracker.getInstance();
+    final boolean matched = latencyTracker.onCodeDelivered(type, System.nanoTime());
+    long sessionStart = WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP;
+    final WhatsAppOtpSharedHandshakeStore sharedStore = this.sharedHandshakeStore;
+    if (sharedStore != null) {
+      sessionStart = sharedStore.completeSession(type);
+    }
+    final WhatsAppOtpHandshakeJournal journal = this.handshakeJournal;
+    if (journal != null) {
+      final HandshakeSession session = journal.completeSession(type, System.currentTimeMillis());
+      if (session != null && sessionStart == WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP) {
+        sessionStart = session.timestampMillis;
+      }
+    }
+    if (!matched && sessionStart != WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP) {
+      latencyTracker.recordLatency(type,
+          TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - sessionStart));
+    }
+  }
+
+  /**
+   * Wait for the next otp code verified by {@link #processOtpCode processOtpCode}, in any
+   * component of this process. This lets the screen which requested the code get it without
+   * being recreated by the intent WhatsApp sends.
+   * <p>
+   * The future completes exceptionally with a {@link java.util.concurrent.TimeoutException} if no
+   * code arrives within the {@code timeout}, or with a {@link WhatsAppOtpErrorException} if an
+   * intent verified to come from WhatsApp carries no code. Intents not coming from WhatsApp do
+   * not affect the waiters. Cancel the future to stop waiting earlier.
+   * </p>
+   *
+   * @param timeout how long to wait for the code, must be positive
+   * @param unit    unit of the {@code timeout}
+   * @return a future completed with the otp code
+   */
+  @NonNull
+  public CompletableFuture<String> awaitOtpCode(final long timeout, final @NonNull TimeUnit unit) {
+    if (unit == null) {
+      throw new NullPointerException("Unit cannot be null");
+    }
+    return OtpCodeWaiters.await(timeout, unit);
+  }
+
   /**
    * Extract code from WhatsAppIntent
    *
@@ -96,12 +363,23 @@ public class WhatsAppOtpIncomingIntentHandler {
       final @NonNull Consumer<DebugSignal> debugSignalConsumer,
       final @NonNull BiConsumer<WhatsAppOtpError, Exception> errorHandler) {
     try {
-      DebugSignal debugSignal = getDebugSignalFromWhatsAppIntent(intent);
-      debugSignalConsumer.accept(debugSignal);
+      final PendingIntent callerInfo = getCallerInfo(intent);
+      WhatsAppOtpIncomingResult result = parse(intent, callerInfo);
+      final WhatsAppOtpDebugSignalAggregator aggregator = this.debugSignalAggregator;
+      if (aggregator != null && result.debugSignal.otpErrorIdentifier != null) {
+        aggregator.record(result.debugSignal);
+      }
+      if (isDeliveredCode(result, callerInfo)) {
+        // a duplicate processOtpCode drops, published when first delivered
+        markPublished(intent);
+      } else {
+        publish(intent, result);
+      }
+      debugSignalConsumer.accept(result.debugSignal);
     } catch (InvalidWhatsAppOtpIntentException e) {
-      errorHandler.accept(WhatsAppOtpError.INTENT_IS_NOT_FROM_WHATSAPP, e);
+      reportError(errorHandler, WhatsAppOtpError.INTENT_IS_NOT_FROM_WHATSAPP, e);
     } catch (Exception e) {
-      errorHandler.accept(WhatsAppOtpError.GENERIC_EXCEPTION, e);
+      reportError(errorHandler, WhatsAppOtpError.GENERIC_EXCEPTION, e);
     }
   }
 
@@ -119,25 +397,119 @@ public class WhatsAppOtpIncomingIntentHandler {
     throw new InvalidWhatsAppOtpIntentException("Invalid Intent");
   }
 
+  /**
+   * Verify the {@code intent} is from WhatsApp and extract everything it carries in one pass. The
+   * caller info is read and its creator package is looked up only once, so prefer this function
+   * over calling {@link #isIntentFromWhatsApp(Intent)}, {@link #getOtpCodeFromWhatsAppIntent(Intent)}
+   * and {@link #getDebugSignalFromWhatsAppIntent(Intent)} on the same intent.
+   *
+   * @param intent WhatsApp intent
+   * @return the WhatsApp client which sent the intent, the code and the debug signal
+   * @throws InvalidWhatsAppOtpIntentException if the intent is not from WhatsApp.
+   */
+  @NonNull
+  public WhatsAppOtpIncomingResult parse(final @NonNull Intent intent) {
+    return parse(intent, getCallerInfo(intent));
+  }
+
+  @NonNull
+  private WhatsAppOtpIncomingResult parse(final @NonNull Intent intent,
+      final @Nullable PendingIntent callerInfo) {
+    final WhatsAppClientType clientType = verifyOrigin(callerInfo);
+    if (clientType == null) {
+      throw new InvalidWhatsAppOtpIntentException("Invalid Intent");
+    }
+    return new WhatsAppOtpIncomingResult(clientType, intent.getStringExtra(CODE_KEY),
+        extractDebugSignal(intent));
+  }
+
+  @Nullable
+  private WhatsAppClientType verifyOrigin(final @NonNull Intent intent) {
+    return verifyOrigin(getCallerInfo(intent));
+  }
+
+  @Nullable
+  private WhatsAppClientType verifyOrigin(final @Nullable PendingIntent callerInfo) {
+    final WhatsAppOtpMetrics metrics = this.metrics;
+    if (metrics == WhatsAppOtpMetrics.NO_OP) {
+      return lookUpOrigin(callerInfo);
+    }
+    final long verificationStart = System.nanoTime();
+    final WhatsAppClientType origin = lookUpOrigin(callerInfo);
+    metrics.onIncomingIntentVerified(origin, System.nanoTime() - verificationStart);
+    return origin;
+  }
+
+  private void reportError(final BiConsumer<WhatsAppOtpError, Exception> errorHandler,
+      final WhatsAppOtpError error, final Exception exception) {
+    metrics.onError(error);
+    errorHandler.accept(error, exception);
+  }
+
+  /**
+   * @return the caller info of the intent, null if it has none or the pre-filter rejects it
+   */
+  @Nullable
+  private PendingIntent getCallerInfo(final @NonNull Intent intent) {
+    if (intentPreFilter && !mayBeFromWhatsApp(intent)) {
+      return null;
+    }
+    return intent.getParcelableExtra(WhatsAppOtpIntentBuilder.CALLER_INFO);
+  }
+
+  @Nullable
+  private WhatsAppClientType lookUpOrigin(final @Nullable PendingIntent callerInfo) {
+    return callerInfo == null ? null : getOriginClientType(callerInfo);
+  }
+
+  @Nullable
+  private WhatsAppClientType getClientType(final @Nullable String creatorPackage) {
+    final WhatsAppClientType type = WhatsAppClientType.fromPackageName(creatorPackage);
+    if (type != null || creatorPackage == null) {
+      return type;
+    }
+    final AcceptedVariant variant = acceptedVariants.get(creatorPackage);
+    if (variant == null || !variant.isSigned(creatorPackage)) {
+      return null;
+    }
+    return WhatsAppClientRegistry.getClientType(creatorPackage);
+  }
+
   private DebugSignal extractDebugSignal(final Intent intent) {
     String otpErrorKey = intent.getStringExtra(OTP_ERROR_IDENTIFIER_KEY);
     String otpErrorMessage = intent.getStringExtra(OTP_ERROR_MESSAGE_KEY);
     return new DebugSignal(otpErrorKey, otpErrorMessage);
   }
 
+  /**
+   * Cheap check telling apart intents which cannot come from WhatsApp, such as launcher or deep
+   * link intents. Only the names of the extras are looked at: the caller info and either a code or
+   * an error must be present. The creator package of the caller info is not looked up, so a true
+   * result still needs to be verified with {@link #isIntentFromWhatsApp(Intent)}.
+   * <p>
+   * Looking at the names still unparcels the extras of the intent. Below Android 13 this
+   * unparcels every value, the caller info included; from Android 13 on values are only
+   * unparcelled when read.
+   * </p>
+   *
+   * @param intent intent
+   * @return false if the intent is definitely not from WhatsApp
+   */
+  public boolean mayBeFromWhatsApp(final @NonNull Intent intent) {
+    return intent.hasExtra(WhatsAppOtpIntentBuilder.CALLER_INFO)
+        && (intent.hasExtra(CODE_KEY) || intent.hasExtra(OTP_ERROR_IDENTIFIER_KEY));
+  }
+
   /**
    * Check if the {@code intent} is from WhatsApp app by checking its pending intent creator
    * package
    *
    * @param intent intent
-   * @return true if the intent is from whatsapp, either com.whatsapp or com.whatsapp.w4b
+   * @return true if the intent is from whatsapp, either com.whatsapp, com.whatsapp.w4b or an
+   * accepted variant
    */
   public boolean isIntentFromWhatsApp(final @NonNull Intent intent) {
-    PendingIntent pendingIntent = intent.getParcelableExtra(WhatsAppOtpIntentBuilder.CALLER_INFO);
-    if (pendingIntent == null) {
-      return false;
-    }
-    return isPendingIntentFromWhatsApp(pendingIntent, WA_PACKAGES);
+    return verifyOrigin(intent) != null;
   }
 
   /**
@@ -150,17 +522,76 @@ public class WhatsAppOtpIncomingIntentHandler {
    */
   public boolean isIntentFromWhatsApp(final @NonNull Intent intent,
       final @NonNull WhatsAppClientType... clientType) {
-    PendingIntent pendingIntent = intent.getParcelableExtra(WhatsAppOtpIntentBuilder.CALLER_INFO);
-    if (pendingIntent == null) {
+    final WhatsAppClientType origin = verifyOrigin(intent);
+    if (origin == null) {
       return false;
     }
-    return isPendingIntentFromWhatsApp(pendingIntent, clientType);
+    for (WhatsAppClientType type : clientType) {
+      if (type == origin) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private static boolean isPendingIntentFromWhatsApp(final @NonNull PendingIntent pendingIntent,
-      final @NonNull WhatsAppClientType... clientType) {
-    String pendingIntentCreatorPackage = pendingIntent.getCreatorPackage();
-    return Arrays.stream(clientType).map(WhatsAppClientType::getPackageName)
-        .anyMatch(packageName -> packageName.equals(pendingIntentCreatorPackage));
+  /**
+   * Find which WhatsApp client created the {@code pendingIntent}. Apart from the creator package
+   * lookup done by the system, this check does not allocate.
+   *
+   * @param pendingIntent the caller info pending intent of an incoming intent
+   * @return the WhatsApp client which created the pending intent, or null if it was not created
+   * by WhatsApp
+   */
+  @Nullable
+  public WhatsAppClientType getOriginClientType(final @NonNull PendingIntent pendingIntent) {
+    return getClientType(pendingIntent.getCreatorPackage());
+  }
+
+  /**
+   * Check if the {@code pendingIntent} was created by a WhatsApp client. Apart from the creator
+   * package lookup done by the system, this check does not allocate.
+   *
+   * @param pendingIntent the caller info pending intent of an incoming intent
+   * @return true if the pending intent was created by either com.whatsapp, com.whatsapp.w4b or an
+   * accepted variant
+   */
+  public boolean isPendingIntentFromWhatsApp(final @NonNull PendingIntent pendingIntent) {
+    return getOriginClientType(pendingIntent) != null;
+  }
+
+  private static class AcceptedVariant {
+
+    private final PackageManager packageManager;
+    private final byte[] certificateSha256;
+
+    private AcceptedVariant(final PackageManager packageManager,
+        final byte[] certificateSha256) {
+      this.packageManager = packageManager;
+      this.certificateSha256 = certificateSha256;
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean isSigned(final String packageName) {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+        return packageManager.hasSigningCertificate(packageName, certificateSha256,
+            PackageManager.CERT_INPUT_SHA256);
+      }
+      try {
+        final PackageInfo packageInfo = packageManager.getPackageInfo(packageName,
+            PackageManager.GET_SIGNATURES);
+        if (packageInfo.signatures == null) {
+          return false;
+        }
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (Signature signature : packageInfo.signatures) {
+          if (MessageDigest.isEqual(certificateSha256, digest.digest(signature.toByteArray()))) {
+            return true;
+          }
+        }
+      } catch (PackageManager.NameNotFoundException | NoSuchAlgorithmException e) {
+        // not installed, nothing to accept
+      }
+      return false;
+    }
   }
 }
@@ -18,10 +18,15 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Class used to build an intent to send to WhatsApp
  *
+ * Instances can be shared between threads, {@link #create(Context, WhatsAppClientType) create}
+ * does not take any lock.
+ *
  * Extends this class if you want to change anything
  */
 public class WhatsAppOtpIntentBuilder {
@@ -32,24 +37,64 @@ public class WhatsAppOtpIntentBuilder {
   public static final String SDK_VERSION = "SDK_VERSION";
   public static final String DEFAULT_VERSION = "0.1.0_not_from_manifest";
 
-  private boolean sendSdkVersion;
+  static final String OTP_REQUESTED_ACTION = "com.whatsapp.otp.OTP_REQUESTED";
+
+  private static final int PENDING_INTENT_FLAGS =
+      Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_IMMUTABLE : 0;
+
+  /**
+   * Default time a PendingIntent is reused for handshakes with the same WhatsApp client
+   */
+  public static final long DEFAULT_PENDING_INTENT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * Sdk version added to the extras, null if the version must not be sent
+   */
+  private final String sdkVersionExtra;
+
+  private final long pendingIntentTtlNanos;
+
+  private final AtomicReferenceArray<CachedPendingIntent> pendingIntents =
+      new AtomicReferenceArray<>(WhatsAppClientType.values().length);
+
+  private volatile WhatsAppOtpMetrics metrics = WhatsAppOtpMetrics.NO_OP;
 
   public WhatsAppOtpIntentBuilder() {
-    sendSdkVersion = true;
+    this(true);
   }
 
   public WhatsAppOtpIntentBuilder(boolean sendSdkVersion) {
-    this.sendSdkVersion = sendSdkVersion;
+    this(sendSdkVersion, DEFAULT_PENDING_INTENT_TTL_MILLIS);
+  }
+
+  /**
+   * Constructor which lets developer define how long the PendingIntent sent to a WhatsApp client
+   * is reused before a new one is requested from the system.
+   *
+   * @param sendSdkVersion          if the sdk version should be sent
+   * @param pendingIntentTtlMillis  time in milliseconds a PendingIntent is reused, 0 disables the
+   *                                reuse
+   */
+  public WhatsAppOtpIntentBuilder(boolean sendSdkVersion, long pendingIntentTtlMillis) {
+    if (pendingIntentTtlMillis < 0) {
+      throw new IllegalArgumentException("PendingIntent ttl cannot be negative.");
+    }
+    this.sdkVersionExtra = sendSdkVersion ? SdkVersionHolder.SDK_VERSION_VALUE : null;
+    this.pendingIntentTtlNanos = TimeUnit.MILLISECONDS.toNanos(pendingIntentTtlMillis);
   }
 
   /**
    * Create a intent to WhatsApp
+   * <p>
+   * The PendingIntent added to the intent is cached per WhatsApp client and reused until the ttl
+   * given to the constructor expires or {@link #invalidatePendingIntents()} is called.
+   * </p>
    * @param context application context
    * @param type consumer or business
    * @return an intent to be sent to WhatsApp.
    */
   @NonNull
-  public synchronized Intent create(final @NonNull Context context,
+  public Intent create(final @NonNull Context context,
       final @NonNull WhatsAppClientType type) {
     if (type == null) {
       throw new NullPointerException("WhatsApp application type must be defined.");
@@ -57,53 +102,136 @@ public class WhatsAppOtpIntentBuilder {
     if (context == null) {
       throw new NullPointerException("Context cannot be null.");
     }
+    final long now = System.nanoTime();
+    final CachedPendingIntent cached = pendingIntents.get(type.ordinal());
+    if (cached != null && now - cached.createdAtNanos < pendingIntentTtlNanos) {
+      Intent intent = newOtpRequestedIntent(type.getPackageName());
+      addExtras(intent, cached.pendingIntent);
+      return intent;
+    }
     Intent intent = createOtpRequestedIntentForWhatsApp(context, type.getPackageName());
-    addPendingIntentForOtp(context, intent);
+    final WhatsAppOtpMetrics metrics = this.metrics;
+    final PendingIntent pendingIntent;
+    if (metrics == WhatsAppOtpMetrics.NO_OP) {
+      pendingIntent = createPendingIntent(context, intent);
+    } else {
+      final long pendingIntentStart = System.nanoTime();
+      pendingIntent = createPendingIntent(context, intent);
+      metrics.onPendingIntentCreated(type, System.nanoTime() - pendingIntentStart);
+    }
+    addExtras(intent, pendingIntent);
+    if (pendingIntentTtlNanos > 0) {
+      pendingIntents.set(type.ordinal(), new CachedPendingIntent(pendingIntent, now));
+    }
     return intent;
   }
 
+  /**
+   * Register a listener for the time spent creating PendingIntents.
+   * {@link WhatsAppOtpHandler#setMetrics(WhatsAppOtpMetrics)} registers its listener here too.
+   *
+   * @param metrics the listener, {@link WhatsAppOtpMetrics#NO_OP} to stop listening
+   */
+  public void setMetrics(final @NonNull WhatsAppOtpMetrics metrics) {
+    if (metrics == null) {
+      throw new NullPointerException("Metrics cannot be null.");
+    }
+    this.metrics = metrics;
+  }
+
+  /**
+   * Drop the cached PendingIntents, the next intent created for each WhatsApp client gets a new
+   * PendingIntent from the system.
+   */
+  public void invalidatePendingIntents() {
+    for (int i = 0; i < pendingIntents.length(); i++) {
+      pendingIntents.set(i, null);
+    }
+  }
+
+  /**
+   * Create the PendingIntent WhatsApp uses to validate the package name of the app requesting the
+   * otp.
+   *
+   * @param context application context
+   * @param intent  the intent to WhatsApp, without extras
+   * @return the PendingIntent added to the intent
+   */
+  @NonNull
+  protected PendingIntent createPendingIntent(final @NonNull Context context,
+      final @NonNull Intent intent) {
+    return PendingIntent.getActivity(context, 0, intent, PENDING_INTENT_FLAGS);
+  }
+
   @NonNull
   private Intent createOtpRequestedIntentForWhatsApp(final Context context,
       final String whatsAppPackageName) {
-    Intent listenIntent = new Intent();
-    listenIntent.setPackage(whatsAppPackageName);
-    listenIntent.setAction("com.whatsapp.otp.OTP_REQUESTED");
-    if (BuildConfig.DEBUG) {
-      try {
-        PackageManager packageManager = context.getPackageManager();
-        PackageInfo packageInfo = packageManager.getPackageInfo(whatsAppPackageName,
-            PackageManager.GET_ACTIVITIES);
-        Log.d(TAG, "Package info: " + packageInfo.toString());
-        List<ResolveInfo> resolveInfoList = packageManager.queryBroadcastReceivers(listenIntent, 0);
-        resolveInfoList.forEach(item -> Log.d(TAG, item.toString()));
-      } catch (PackageManager.NameNotFoundException exception) {
-        Log.i(TAG, "Package " + whatsAppPackageName
+    Intent listenIntent = newOtpRequestedIntent(whatsAppPackageName);
+    final WhatsAppOtpDiagnostics diagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+    if (diagnostics.isLoggable(Log.DEBUG)) {
+      logWhatsAppPackage(diagnostics, context, listenIntent, whatsAppPackageName);
+    }
+    return listenIntent;
+  }
+
+  private static void logWhatsAppPackage(final WhatsAppOtpDiagnostics diagnostics,
+      final Context context, final Intent listenIntent, final String whatsAppPackageName) {
+    try {
+      PackageManager packageManager = context.getPackageManager();
+      PackageInfo packageInfo = packageManager.getPackageInfo(whatsAppPackageName,
+          PackageManager.GET_ACTIVITIES);
+      diagnostics.log(Log.DEBUG, TAG, () -> "Package info: " + packageInfo, null);
+      List<ResolveInfo> resolveInfoList = packageManager.queryBroadcastReceivers(listenIntent, 0);
+      resolveInfoList.forEach(item -> diagnostics.log(Log.DEBUG, TAG, item::toString, null));
+    } catch (PackageManager.NameNotFoundException exception) {
+      if (diagnostics.isLoggable(Log.INFO)) {
+        diagnostics.log(Log.INFO, TAG, () -> "Package " + whatsAppPackageName
             + " not found. Did add it to <queries> section on the  manifest file?", exception);
       }
     }
+  }
+
+  @NonNull
+  private static Intent newOtpRequestedIntent(final String whatsAppPackageName) {
+    Intent listenIntent = new Intent();
+    listenIntent.setPackage(whatsAppPackageName);
+    listenIntent.setAction(OTP_REQUESTED_ACTION);
     return listenIntent;
   }
 
-  private void addPendingIntentForOtp(Context context, Intent intent) {
-    int flag = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_IMMUTABLE : 0;
-    PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent, flag);
-    Bundle extras = intent.getExtras();
-    if (extras == null) {
-      extras = new Bundle();
-    }
+  private void addExtras(Intent intent, PendingIntent pendingIntent) {
+    Bundle extras = new Bundle();
     extras.putParcelable(CALLER_INFO, pendingIntent);
-    if (sendSdkVersion) {
-      final String implementationVersionFromManifest = getSdkVersion();
-      extras.putString(SDK_VERSION,
-          implementationVersionFromManifest);
+    if (sdkVersionExtra != null) {
+      extras.putString(SDK_VERSION, sdkVersionExtra);
     }
     intent.putExtras(extras);
   }
 
-  private String getSdkVersion() {
-    final Package aPackage = this.getClass().getPackage();
-    // If the manifest is absent, such as when running unit tests, the DEFAULT_VERSION will be provided
-    final String versionFromPackage = aPackage != null ? aPackage.getImplementationVersion() : null;
-    return versionFromPackage != null ? versionFromPackage : DEFAULT_VERSION;
+  private static class CachedPendingIntent {
+
+    private final PendingIntent pendingIntent;
+    private final long createdAtNanos;
+
+    private CachedPendingIntent(final PendingIntent pendingIntent, final long createdAtNanos) {
+      this.pendingIntent = pendingIntent;
+      this.createdAtNanos = createdAtNanos;
+    }
+  }
+
+  /**
+   * Resolves the sdk version once, the first time a builder sending it is created.
+   */
+  private static class SdkVersionHolder {
+
+    private static final String SDK_VERSION_VALUE = getSdkVersion();
+
+    private static String getSdkVersion() {
+      final Package aPackage = WhatsAppOtpIntentBuilder.class.getPackage();
+      // If the manifest is absent, such as when running unit tests, the DEFAULT_VERSION will be provided
+      final String versionFromPackage =
+          aPackage != null ? aPackage.getImplementationVersion() : null;
+      return versionFromPackage != null ? versionFromPackage : DEFAULT_VERSION;
+    }
   }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import com.whatsapp.otp.android.sdk.data.LatencySnapshot;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process wide tracker of the latency between a handshake and the delivery of the otp code.
+ * <p>
+ * Every handshake sent by a {@link WhatsAppOtpHandler} is timestamped per client type. When
+ * {@link WhatsAppOtpIncomingIntentHandler#processOtpCode processOtpCode} delivers a code, the
+ * time elapsed since the last handshake to the client which sent the code is recorded, before the
+ * code consumer runs. Each handshake is matched at most once, so codes delivered without a
+ * handshake from this process are not recorded. A handshake sent to both clients at once is
+ * matched by the first code either of them delivers, a later code from the other client is not
+ * recorded.
+ * </p>
+ */
+public final class WhatsAppOtpLatencyTracker {
+
+  private static final long NO_HANDSHAKE = Long.MIN_VALUE;
+
+  private static final WhatsAppOtpLatencyTracker INSTANCE = new WhatsAppOtpLatencyTracker();
+
+  /**
+   * Start time, from {@link System#nanoTime()}, of the last unmatched handshake per client type.
+   * The handshakes sent to several clients at once share their start time.
+   */
+  private final AtomicLongArray pendingHandshakeNanos;
+
+  private final LatencyHistogram[] histograms;
+
+  private WhatsAppOtpLatencyTracker() {
+    final int clientTypeCount = WhatsAppClientType.values().length;
+    this.pendingHandshakeNanos = new AtomicLongArray(clientTypeCount);
+    this.histograms = new LatencyHistogram[clientTypeCount];
+    for (int i = 0; i < clientTypeCount; i++) {
+      pendingHandshakeNanos.set(i, NO_HANDSHAKE);
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * @return the tracker of this process
+   */
+  @NonNull
+  public static WhatsAppOtpLatencyTracker getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the latencies recorded for both WhatsApp consumer and business
+   */
+  @NonNull
+  public LatencySnapshot getSnapshot() {
+    return LatencyHistogram.snapshot(histograms);
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return the latencies recorded for codes delivered by the client
+   */
+  @NonNull
+  public LatencySnapshot getSnapshot(final @NonNull WhatsAppClientType type) {
+    return LatencyHistogram.snapshot(histograms[type.ordinal()]);
+  }
+
+  /**
+   * Drop every recorded latency and every unmatched handshake
+   */
+  public void reset() {
+    for (int i = 0; i < histograms.length; i++) {
+      pendingHandshakeNanos.set(i, NO_HANDSHAKE);
+      histograms[i].reset();
+    }
+  }
+
+  void onHandshakeSent(final @NonNull WhatsAppClientType type, final long nanoTime) {
+    pendingHandshakeNanos.set(type.ordinal(), nanoTime);
+  }
+
+  /**
+   * @return true if the code was matched to a handshake sent by this process
+   */
+  boolean onCodeDelivered(final @NonNull WhatsAppClientType type, final long nanoTime) {
+    final int index = type.ordinal();
+    final long handshakeNanos = pendingHandshakeNanos.getAndSet(index, NO_HANDSHAKE);
+    if (handshakeNanos == NO_HANDSHAKE) {
+      return false;
+    }
+    // the other clients of the same handshake have nothing left to deliver
+    for (int i = 0; i < histograms.length; i++) {
+      pendingHandshakeNanos.compareAndSet(i, handshakeNanos, NO_HANDSHAKE);
+    }
+    histograms[index].record(nanoTime - handshakeNanos);
+    return true;
+  }
+
+  /**
+   * Record the latency of a code matched to a handshake sent by another process
+   */
+  void recordLatency(final @NonNull WhatsAppClientType type, final long latencyNanos) {
+    histograms[type.ordinal()].record(latencyNanos);
+  }
+}
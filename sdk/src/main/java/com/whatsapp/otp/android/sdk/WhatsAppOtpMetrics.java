@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppOtpError;
+
+/**
+ * Listener for the timings of the operations done by the sdk and for the errors it reports.
+ * <p>
+ * Register an implementation with {@link WhatsAppOtpHandler#setMetrics(WhatsAppOtpMetrics)} and
+ * {@link WhatsAppOtpIncomingIntentHandler#setMetrics(WhatsAppOtpMetrics)}. Every method has an
+ * empty default implementation, so only the relevant ones need to be overridden. Callbacks run on
+ * the thread doing the operation and should return quickly.
+ * </p>
+ * <p>
+ * No timing is taken while {@link #NO_OP}, the default, is registered.
+ * </p>
+ */
+public interface WhatsAppOtpMetrics {
+
+  /**
+   * Listener which ignores everything
+   */
+  WhatsAppOtpMetrics NO_OP = new WhatsAppOtpMetrics() {
+  };
+
+  /**
+   * Called after the handshake intent for a client is built, PendingIntent included.
+   *
+   * @param type          WhatsApp client the intent is for
+   * @param durationNanos time spent, in nanoseconds
+   */
+  default void onIntentBuilt(final @NonNull WhatsAppClientType type, final long durationNanos) {
+  }
+
+  /**
+   * Called after a PendingIntent is created for the handshake intent. Not called when a cached
+   * PendingIntent is reused.
+   *
+   * @param type          WhatsApp client the PendingIntent is for
+   * @param durationNanos time spent, in nanoseconds
+   */
+  default void onPendingIntentCreated(final @NonNull WhatsAppClientType type,
+      final long durationNanos) {
+  }
+
+  /**
+   * Called after the handshake intent is broadcast to a client.
+   *
+   * @param type          WhatsApp client the intent was sent to
+   * @param durationNanos time spent, in nanoseconds
+   */
+  default void onBroadcastSent(final @NonNull WhatsAppClientType type, final long durationNanos) {
+  }
+
+  /**
+   * Called after the capability of a client is looked up from the package manager. Not called
+   * when the cached capability is used.
+   *
+   * @param type          WhatsApp client looked up
+   * @param durationNanos time spent, in nanoseconds
+   */
+  default void onCapabilityLoaded(final @NonNull WhatsAppClientType type,
+      final long durationNanos) {
+  }
+
+  /**
+   * Called after {@link WhatsAppOtpHandler#probe(android.content.Context)} completes.
+   *
+   * @param durationNanos time spent, in nanoseconds
+   */
+  default void onProbe(final long durationNanos) {
+  }
+
+  /**
+   * Called after the origin of an incoming intent is verified.
+   *
+   * @param origin        WhatsApp client which sent the intent, null if it is not from WhatsApp
+   * @param durationNanos time spent, in nanoseconds
+   */
+  default void onIncomingIntentVerified(final @Nullable WhatsAppClientType origin,
+      final long durationNanos) {
+  }
+
+  /**
+   * Called every time an error is reported to an error handler.
+   *
+   * @param error the error
+   */
+  default void onError(final @NonNull WhatsAppOtpError error) {
+  }
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Handshake state shared by every process of the app through a small memory-mapped file.
+ * <p>
+ * The file holds one slot per {@link WhatsAppClientType} with the time of the last handshake to
+ * the client and the start of the session still waiting for a code from it. Register the store
+ * with {@link WhatsAppOtpHandler#setSharedHandshakeStore(WhatsAppOtpSharedHandshakeStore)} so a
+ * handshake sent by another process within the handshake ttl is not sent again, and with
+ * {@link WhatsAppOtpIncomingIntentHandler#setSharedHandshakeStore(WhatsAppOtpSharedHandshakeStore)}
+ * so a code is matched to the session started by any process.
+ * </p>
+ * <p>
+ * A slot is read and updated in place in the mapped memory while holding a monitor of the slot
+ * and a file lock on its byte range only, so threads and processes do not wait on each other for
+ * different clients and no IPC is involved. Times come from {@link System#currentTimeMillis()}
+ * since the file outlives reboots. If the file cannot be accessed, handshakes are sent as if
+ * there was no store.
+ * </p>
+ */
+public final class WhatsAppOtpSharedHandshakeStore {
+
+  /**
+   * Value returned when no time is recorded
+   */
+  public static final long NO_TIMESTAMP = 0;
+
+  private static final String TAG = WhatsAppOtpSharedHandshakeStore.class.getSimpleName();
+
+  private static final String FILE_NAME = "whatsapp_otp_handshake_state";
+
+  private static final int MAGIC = 0x57414F54;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+
+  private static final int SLOT_SIZE = 16;
+
+  private static final int HANDSHAKE_OFFSET = 0;
+
+  private static final int SESSION_OFFSET = 8;
+
+  /**
+   * Stores opened in this process by canonical path. Each file must be mapped once per process
+   * because file locks are held by the process, not by the thread.
+   */
+  private static final Map<String, WhatsAppOtpSharedHandshakeStore> stores =
+      new ConcurrentHashMap<>();
+
+  private final FileChannel channel;
+
+  private final MappedByteBuffer buffer;
+
+  /**
+   * Monitor per slot, by client type ordinal. The file lock of a slot is held by the process, so
+   * the threads of the process must also take turns on it.
+   */
+  private final Object[] slotLocks = new Object[WhatsAppClientType.values().length];
+
+  private WhatsAppOtpSharedHandshakeStore(final FileChannel channel,
+      final MappedByteBuffer buffer) {
+    this.channel = channel;
+    this.buffer = buffer;
+    for (int i = 0; i < slotLocks.length; i++) {
+      slotLocks[i] = new Object();
+    }
+  }
+
+  /**
+   * Open the store of the app, kept in its no backup files directory.
+   *
+   * @param context context
+   * @return the store, the same instance for every call in the process
+   * @throws IOException if the file cannot be created or mapped
+   */
+  @NonNull
+  public static WhatsAppOtpSharedHandshakeStore open(final @NonNull Context context)
+      throws IOException {
+    if (context == null) {
+      throw new NullPointerException("Context cannot be null");
+    }
+    return open(new File(context.getNoBackupFilesDir(), FILE_NAME));
+  }
+
+  /**
+   * Open a store kept in the given file.
+   *
+   * @param file file shared by the processes
+   * @return the store, the same instance for every call with the same file in the process
+   * @throws IOException if the file cannot be created or mapped
+   */
+  @NonNull
+  public static WhatsAppOtpSharedHandshakeStore open(final @NonNull File file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("File cannot be null");
+    }
+    final String path = file.getCanonicalPath();
+    synchronized (stores) {
+      WhatsAppOtpSharedHandshakeStore store = stores.get(path);
+      if (store == null) {
+        store = map(file);
+        stores.put(path, store);
+      }
+      return store;
+    }
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return the time of the last handshake to the client sent by any process, or
+   * {@link #NO_TIMESTAMP}
+   */
+  public long getLastHandshakeMillis(final @NonNull WhatsAppClientType type) {
+    return readSlot(type, HANDSHAKE_OFFSET);
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return the start of the session waiting for a code from the client, or
+   * {@link #NO_TIMESTAMP} if there is none
+   */
+  public long getOutstandingSessionMillis(final @NonNull WhatsAppClientType type) {
+    return readSlot(type, SESSION_OFFSET);
+  }
+
+  /**
+   * Record a handshake unless another one was recorded within the {@code ttlMillis}.
+   *
+   * @return the slot as it was before, to restore with {@link #restoreHandshake} if the handshake
+   * is not sent, or null if the handshake was not recorded and should not be sent
+   */
+  @Nullable
+  Slot tryRecordHandshake(final @NonNull WhatsAppClientType type,
+      final long nowMillis, final long ttlMillis) {
+    final int slot = slotPosition(type);
+    synchronized (slotLocks[type.ordinal()]) {
+      try (FileLock ignored = channel.lock(slot, SLOT_SIZE, false)) {
+        final long lastHandshake = buffer.getLong(slot + HANDSHAKE_OFFSET);
+        if (isFresh(lastHandshake, nowMillis, ttlMillis)) {
+          return null;
+        }
+        return recordHandshakeLocked(slot, nowMillis);
+      } catch (IOException e) {
+        logFailure(e);
+        return Slot.EMPTY;
+      }
+    }
+  }
+
+  /**
+   * Record a handshake regardless of the previous one
+   *
+   * @return the slot as it was before, to restore with {@link #restoreHandshake} if the handshake
+   * is not sent
+   */
+  @NonNull
+  Slot recordHandshake(final @NonNull WhatsAppClientType type, final long nowMillis) {
+    final int slot = slotPosition(type);
+    synchronized (slotLocks[type.ordinal()]) {
+      try (FileLock ignored = channel.lock(slot, SLOT_SIZE, false)) {
+        return recordHandshakeLocked(slot, nowMillis);
+      } catch (IOException e) {
+        logFailure(e);
+        return Slot.EMPTY;
+      }
+    }
+  }
+
+  /**
+   * Put back the {@code previous} values of a slot where a handshake recorded at
+   * {@code handshakeMillis} could not be sent. Each value is only put back if it was not changed
+   * since, so a later handshake or a completed session is kept.
+   */
+  void restoreHandshake(final @NonNull WhatsAppClientType type, final long handshakeMillis,
+      final @NonNull Slot previous) {
+    final int slot = slotPosition(type);
+    synchronized (slotLocks[type.ordinal()]) {
+      try (FileLock ignored = channel.lock(slot, SLOT_SIZE, false)) {
+        if (buffer.getLong(slot + HANDSHAKE_OFFSET) == handshakeMillis) {
+          buffer.putLong(slot + HANDSHAKE_OFFSET, previous.handshakeMillis);
+        }
+        if (buffer.getLong(slot + SESSION_OFFSET) == handshakeMillis) {
+          buffer.putLong(slot + SESSION_OFFSET, previous.sessionMillis);
+        }
+      } catch (IOException e) {
+        logFailure(e);
+      }
+    }
+  }
+
+  /**
+   * End the session waiting for a code from the client.
+   *
+   * @return the start of the session, or {@link #NO_TIMESTAMP} if there was none
+   */
+  long completeSession(final @NonNull WhatsAppClientType type) {
+    final int slot = slotPosition(type);
+    synchronized (slotLocks[type.ordinal()]) {
+      try (FileLock ignored = channel.lock(slot, SLOT_SIZE, false)) {
+        final long sessionStart = buffer.getLong(slot + SESSION_OFFSET);
+        buffer.putLong(slot + SESSION_OFFSET, NO_TIMESTAMP);
+        return sessionStart;
+      } catch (IOException e) {
+        logFailure(e);
+        return NO_TIMESTAMP;
+      }
+    }
+  }
+
+  static boolean isFresh(final long timestampMillis, final long nowMillis,
+      final long ttlMillis) {
+    if (timestampMillis == NO_TIMESTAMP) {
+      return false;
+    }
+    // a timestamp in the future means the clock went back, it is not trusted
+    final long elapsed = nowMillis - timestampMillis;
+    return elapsed >= 0 && elapsed < ttlMillis;
+  }
+
+  private long readSlot(final WhatsAppClientType type, final int offset) {
+    final int slot = slotPosition(type);
+    synchronized (slotLocks[type.ordinal()]) {
+      try (FileLock ignored = channel.lock(slot, SLOT_SIZE, true)) {
+        return buffer.getLong(slot + offset);
+      } catch (IOException e) {
+        logFailure(e);
+        return NO_TIMESTAMP;
+      }
+    }
+  }
+
+  private Slot recordHandshakeLocked(final int slot, final long nowMillis) {
+    final Slot previous = new Slot(buffer.getLong(slot + HANDSHAKE_OFFSET),
+        buffer.getLong(slot + SESSION_OFFSET));
+    buffer.putLong(slot + HANDSHAKE_OFFSET, nowMillis);
+    buffer.putLong(slot + SESSION_OFFSET, nowMillis);
+    return previous;
+  }
+
+  private static int slotPosition(final WhatsAppClientType type) {
+    return HEADER_SIZE + type.ordinal() * SLOT_SIZE;
+  }
+
+  private static WhatsAppOtpSharedHandshakeStore map(final File file) throws IOException {
+    final int size = HEADER_SIZE + WhatsAppClientType.values().length * SLOT_SIZE;
+    final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    final FileChannel channel = randomAccessFile.getChannel();
+    try {
+      // the first process to get the lock lays out the file, the others find it ready
+      try (FileLock ignored = channel.lock()) {
+        if (randomAccessFile.length() < size) {
+          randomAccessFile.setLength(size);
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+          for (int i = 0; i < size; i += 8) {
+            buffer.putLong(i, 0);
+          }
+          buffer.putInt(0, MAGIC);
+          buffer.putInt(4, VERSION);
+        }
+        return new WhatsAppOtpSharedHandshakeStore(channel, buffer);
+      }
+    } catch (IOException | RuntimeException e) {
+      randomAccessFile.close();
+      throw e;
+    }
+  }
+
+  private static void logFailure(final IOException exception) {
+    final WhatsAppOtpDiagnostics diagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+    if (diagnostics.isLoggable(Log.WARN)) {
+      diagnostics.log(Log.WARN, TAG, () -> "Shared handshake state not available", exception);
+    }
+  }
+
+  /**
+   * Values of a slot before a handshake was recorded in it
+   */
+  static final class Slot {
+
+    static final Slot EMPTY = new Slot(NO_TIMESTAMP, NO_TIMESTAMP);
+
+    final long handshakeMillis;
+    final long sessionMillis;
+
+    Slot(final long handshakeMillis, final long sessionMillis) {
+      this.handshakeMillis = handshakeMillis;
+      this.sessionMillis = sessionMillis;
+    }
+  }
+}
@@ -9,7 +9,14 @@ package com.whatsapp.otp.android.sdk;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Class with some utility functions which helps manage Broadcast receivers and Activities
@@ -39,6 +46,78 @@ public class WhatsAppOtpUtils {
     changeComponentState(context, cls, PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
   }
 
+  /**
+   * Change the state of several components together, for instance an activity and the receivers
+   * or aliases which go with it. Components already in their target state are left untouched.
+   * <p>
+   * On Android 13 and above the changes are applied in a single package manager transaction,
+   * otherwise they are applied one by one in the iteration order of {@code targetStates}.
+   * </p>
+   *
+   * @param context      context
+   * @param targetStates target state per component class, one of
+   *                     {@link PackageManager#COMPONENT_ENABLED_STATE_ENABLED},
+   *                     {@link PackageManager#COMPONENT_ENABLED_STATE_DISABLED} or
+   *                     {@link PackageManager#COMPONENT_ENABLED_STATE_DEFAULT}
+   * @return the component classes whose state was changed, in the iteration order of
+   * {@code targetStates}
+   */
+  @NonNull
+  public Set<Class<?>> changeComponentStates(final @NonNull Context context,
+      final @NonNull Map<Class<?>, Integer> targetStates) {
+    return changeComponentStates(context, targetStates, Collections.emptyMap());
+  }
+
+  /**
+   * Same as {@link #changeComponentStates(Context, Map)}, for callers which already know the
+   * state of some components, for instance because they wrote it last. The state of those
+   * components is not read from the package manager, which saves a binder call per component.
+   *
+   * @param context       context
+   * @param targetStates  target state per component class
+   * @param currentStates known current state per component class, components missing from it
+   *                      are read from the package manager
+   * @return the component classes whose state was changed, in the iteration order of
+   * {@code targetStates}
+   */
+  @NonNull
+  public Set<Class<?>> changeComponentStates(final @NonNull Context context,
+      final @NonNull Map<Class<?>, Integer> targetStates,
+      final @NonNull Map<Class<?>, Integer> currentStates) {
+    final PackageManager pm = context.getPackageManager();
+    final Set<Class<?>> changedComponents = new LinkedHashSet<>();
+    final List<ComponentName> componentNames = new ArrayList<>();
+    final List<Integer> componentStates = new ArrayList<>();
+    for (Map.Entry<Class<?>, Integer> targetState : targetStates.entrySet()) {
+      final ComponentName componentName = new ComponentName(context, targetState.getKey());
+      final Integer knownState = currentStates.get(targetState.getKey());
+      final int currentState = knownState != null ? knownState
+          : pm.getComponentEnabledSetting(componentName);
+      if (currentState != targetState.getValue()) {
+        changedComponents.add(targetState.getKey());
+        componentNames.add(componentName);
+        componentStates.add(targetState.getValue());
+      }
+    }
+    if (componentNames.isEmpty()) {
+      return changedComponents;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+      final List<PackageManager.ComponentEnabledSetting> settings = new ArrayList<>();
+      for (int i = 0; i < componentNames.size(); i++) {
+        settings.add(new PackageManager.ComponentEnabledSetting(componentNames.get(i),
+            componentStates.get(i), PackageManager.DONT_KILL_APP));
+      }
+      pm.setComponentEnabledSettings(settings);
+    } else {
+      for (int i = 0; i < componentNames.size(); i++) {
+        pm.setComponentEnabledSetting(componentNames.get(i), componentStates.get(i),
+            PackageManager.DONT_KILL_APP);
+      }
+    }
+    return changedComponents;
+  }
+
   private static void changeComponentState(final @NonNull Context context, final @NonNull Class<?> cls, int componentState) {
     PackageManager pm = context.getPackageManager();
     ComponentName componentName = new ComponentName(context, cls);
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug signals aggregated up to the moment the snapshot was taken
+ */
+public class DebugSignalSnapshot {
+
+  /**
+   * Number of signals per error identifier, unmodifiable
+   */
+  public final Map<String, Long> countsByIdentifier;
+  /**
+   * Number of signals with a missing error identifier, or with an identifier seen after the
+   * aggregator ran out of identifier ids
+   */
+  public final long otherCount;
+  /**
+   * Latest signals, oldest first, unmodifiable
+   */
+  public final List<DebugSignal> recentSignals;
+
+  /**
+   * Constructor
+   * @param countsByIdentifier number of signals per error identifier
+   * @param otherCount number of signals with a missing error identifier, or with an identifier
+   *     seen after the aggregator ran out of identifier ids
+   * @param recentSignals latest signals, oldest first
+   */
+  public DebugSignalSnapshot(final Map<String, Long> countsByIdentifier, final long otherCount,
+      final List<DebugSignal> recentSignals) {
+    this.countsByIdentifier = countsByIdentifier;
+    this.otherCount = otherCount;
+    this.recentSignals = recentSignals;
+  }
+
+  /**
+   * @return the total number of signals
+   */
+  public long getTotalCount() {
+    long total = otherCount;
+    for (long count : countsByIdentifier.values()) {
+      total += count;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.enums.HandshakeSkipReason;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable outcome of a handshake with WhatsApp: the clients the handshake was sent to, the
+ * clients which were skipped and how long each step took.
+ */
+public class HandshakeResult {
+
+  private final Set<WhatsAppClientType> targetedClients;
+  private final Map<WhatsAppClientType, HandshakeSkipReason> skippedClients;
+  private final long[] intentBuildDurationNanos;
+  private final long[] broadcastDurationNanos;
+  private final long totalDurationNanos;
+
+  private HandshakeResult(final Builder builder) {
+    this.targetedClients = Collections.unmodifiableSet(EnumSet.copyOf(builder.targetedClients));
+    this.skippedClients = Collections.unmodifiableMap(new EnumMap<>(builder.skippedClients));
+    this.intentBuildDurationNanos = builder.intentBuildDurationNanos.clone();
+    this.broadcastDurationNanos = builder.broadcastDurationNanos.clone();
+    this.totalDurationNanos = builder.totalDurationNanos;
+  }
+
+  /**
+   * @return the clients the handshake was broadcast to
+   */
+  @NonNull
+  public Set<WhatsAppClientType> getTargetedClients() {
+    return targetedClients;
+  }
+
+  /**
+   * @return the clients the handshake was not sent to
+   */
+  @NonNull
+  public Set<WhatsAppClientType> getSkippedClients() {
+    return skippedClients.keySet();
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return why the handshake was not sent to the client, or null if it was not skipped
+   */
+  @Nullable
+  public HandshakeSkipReason getSkipReason(final @NonNull WhatsAppClientType type) {
+    return skippedClients.get(type);
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return how long building the handshake intent for the client took, in nanoseconds, or 0 if
+   * the handshake was not sent to the client
+   */
+  public long getIntentBuildDurationNanos(final @NonNull WhatsAppClientType type) {
+    return intentBuildDurationNanos[type.ordinal()];
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return how long broadcasting the handshake intent to the client took, in nanoseconds, or 0
+   * if the handshake was not sent to the client
+   */
+  public long getBroadcastDurationNanos(final @NonNull WhatsAppClientType type) {
+    return broadcastDurationNanos[type.ordinal()];
+  }
+
+  /**
+   * @return how long the whole handshake took, in nanoseconds
+   */
+  public long getTotalDurationNanos() {
+    return totalDurationNanos;
+  }
+
+  /**
+   * Builder for {@link HandshakeResult}
+   */
+  public static class Builder {
+
+    private final EnumSet<WhatsAppClientType> targetedClients = EnumSet.noneOf(
+        WhatsAppClientType.class);
+    private final EnumMap<WhatsAppClientType, HandshakeSkipReason> skippedClients =
+        new EnumMap<>(WhatsAppClientType.class);
+    private final long[] intentBuildDurationNanos = new long[WhatsAppClientType.values().length];
+    private final long[] broadcastDurationNanos = new long[WhatsAppClientType.values().length];
+    private long totalDurationNanos;
+
+    /**
+     * Record that the handshake was sent to a client
+     * @param type WhatsApp client
+     * @param intentBuildDurationNanos time spent building the intent, in nanoseconds
+     * @param broadcastDurationNanos time spent broadcasting the intent, in nanoseconds
+     * @return this builder
+     */
+    @NonNull
+    public Builder addTargetedClient(final @NonNull WhatsAppClientType type,
+        final long intentBuildDurationNanos, final long broadcastDurationNanos) {
+      this.targetedClients.add(type);
+      this.skippedClients.remove(type);
+      this.intentBuildDurationNanos[type.ordinal()] = intentBuildDurationNanos;
+      this.broadcastDurationNanos[type.ordinal()] = broadcastDurationNanos;
+      return this;
+    }
+
+    /**
+     * Record that the handshake was not sent to a client
+     * @param type WhatsApp client
+     * @param reason why the handshake was not sent
+     * @return this builder
+     */
+    @NonNull
+    public Builder addSkippedClient(final @NonNull WhatsAppClientType type,
+        final @NonNull HandshakeSkipReason reason) {
+      this.skippedClients.put(type, reason);
+      return this;
+    }
+
+    /**
+     * @param totalDurationNanos time spent on the whole handshake, in nanoseconds
+     * @return this builder
+     */
+    @NonNull
+    public Builder setTotalDurationNanos(final long totalDurationNanos) {
+      this.totalDurationNanos = totalDurationNanos;
+      return this;
+    }
+
+    @NonNull
+    public HandshakeResult build() {
+      return new HandshakeResult(this);
+    }
+  }
+}
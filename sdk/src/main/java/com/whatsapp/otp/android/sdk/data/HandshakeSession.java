@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+
+/**
+ * A handshake recorded in the handshake journal
+ */
+public class HandshakeSession {
+
+  /**
+   * Random identifier of the session
+   */
+  public final long sessionId;
+  /**
+   * WhatsApp client the handshake was sent to
+   */
+  public final WhatsAppClientType clientType;
+  /**
+   * Time the handshake was sent, from {@link System#currentTimeMillis()}
+   */
+  public final long timestampMillis;
+
+  /**
+   * Constructor
+   * @param sessionId identifier of the session
+   * @param clientType WhatsApp client the handshake was sent to
+   * @param timestampMillis time the handshake was sent
+   */
+  public HandshakeSession(final long sessionId, final WhatsAppClientType clientType,
+      final long timestampMillis) {
+    this.sessionId = sessionId;
+    this.clientType = clientType;
+    this.timestampMillis = timestampMillis;
+  }
+}
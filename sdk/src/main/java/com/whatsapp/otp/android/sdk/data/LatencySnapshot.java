@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+/**
+ * Percentiles of the latencies recorded up to the moment the snapshot was taken. Percentiles are
+ * rounded up to the precision of the histogram they come from and are 0 when nothing was recorded.
+ */
+public class LatencySnapshot {
+
+  /**
+   * Number of latencies recorded
+   */
+  public final long count;
+  /**
+   * Median latency, in nanoseconds
+   */
+  public final long p50Nanos;
+  /**
+   * 90th percentile latency, in nanoseconds
+   */
+  public final long p90Nanos;
+  /**
+   * 99th percentile latency, in nanoseconds
+   */
+  public final long p99Nanos;
+  /**
+   * Highest latency, in nanoseconds
+   */
+  public final long maxNanos;
+
+  /**
+   * Constructor
+   * @param count number of latencies recorded
+   * @param p50Nanos median latency
+   * @param p90Nanos 90th percentile latency
+   * @param p99Nanos 99th percentile latency
+   * @param maxNanos highest latency
+   */
+  public LatencySnapshot(final long count, final long p50Nanos, final long p90Nanos,
+      final long p99Nanos, final long maxNanos) {
+    this.count = count;
+    this.p50Nanos = p50Nanos;
+    this.p90Nanos = p90Nanos;
+    this.p99Nanos = p99Nanos;
+    this.maxNanos = maxNanos;
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+import androidx.annotation.NonNull;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable report of which WhatsApp clients are installed and which support the otp handshake
+ */
+public class WhatsAppCapabilityReport {
+
+  private final Set<WhatsAppClientType> installedClients;
+  private final Set<WhatsAppClientType> handshakeSupportedClients;
+
+  /**
+   * Constructor
+   * @param installedClients clients installed on the device
+   * @param handshakeSupportedClients clients which have a receiver for the otp handshake
+   */
+  public WhatsAppCapabilityReport(final @NonNull Set<WhatsAppClientType> installedClients,
+      final @NonNull Set<WhatsAppClientType> handshakeSupportedClients) {
+    this.installedClients = Collections.unmodifiableSet(copyOf(installedClients));
+    this.handshakeSupportedClients = Collections.unmodifiableSet(
+        copyOf(handshakeSupportedClients));
+  }
+
+  /**
+   * @return the clients installed on the device
+   */
+  @NonNull
+  public Set<WhatsAppClientType> getInstalledClients() {
+    return installedClients;
+  }
+
+  /**
+   * @return the clients which support the otp handshake
+   */
+  @NonNull
+  public Set<WhatsAppClientType> getHandshakeSupportedClients() {
+    return handshakeSupportedClients;
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return true if the client is installed
+   */
+  public boolean isInstalled(final @NonNull WhatsAppClientType type) {
+    return installedClients.contains(type);
+  }
+
+  /**
+   * @param type WhatsApp client
+   * @return true if the client supports the otp handshake
+   */
+  public boolean isHandshakeSupported(final @NonNull WhatsAppClientType type) {
+    return handshakeSupportedClients.contains(type);
+  }
+
+  /**
+   * @return true if either WhatsApp consumer or business is installed
+   */
+  public boolean isAnyInstalled() {
+    return !installedClients.isEmpty();
+  }
+
+  /**
+   * @return true if either WhatsApp consumer or business supports the otp handshake
+   */
+  public boolean isAnyHandshakeSupported() {
+    return !handshakeSupportedClients.isEmpty();
+  }
+
+  private static EnumSet<WhatsAppClientType> copyOf(final Set<WhatsAppClientType> clients) {
+    final EnumSet<WhatsAppClientType> copy = EnumSet.noneOf(WhatsAppClientType.class);
+    copy.addAll(clients);
+    return copy;
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+
+/**
+ * Holder for what is known about a WhatsApp client installed on the device
+ */
+public class WhatsAppClientCapability {
+
+  /**
+   * Version code used when the version of the client could not be determined
+   */
+  public static final long UNKNOWN_VERSION_CODE = -1L;
+
+  /**
+   * The WhatsApp client this capability refers to
+   */
+  public final WhatsAppClientType clientType;
+  /**
+   * If the client is installed on the device
+   */
+  public final boolean installed;
+  /**
+   * If the client has a receiver for the otp handshake
+   */
+  public final boolean handshakeSupported;
+  /**
+   * The version code of the client or {@link #UNKNOWN_VERSION_CODE}
+   */
+  public final long versionCode;
+
+  /**
+   * Constructor
+   * @param clientType the WhatsApp client
+   * @param installed if the client is installed
+   * @param handshakeSupported if the client supports the otp handshake
+   * @param versionCode the version code of the client
+   */
+  public WhatsAppClientCapability(final WhatsAppClientType clientType, final boolean installed,
+      final boolean handshakeSupported, final long versionCode) {
+    this.clientType = clientType;
+    this.installed = installed;
+    this.handshakeSupported = handshakeSupported;
+    this.versionCode = versionCode;
+  }
+}
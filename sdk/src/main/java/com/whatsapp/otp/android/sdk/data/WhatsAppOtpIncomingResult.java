@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.data;
+
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+
+/**
+ * Holder for everything extracted from an intent verified to come from WhatsApp
+ */
+public class WhatsAppOtpIncomingResult {
+
+  /**
+   * The WhatsApp client which sent the intent
+   */
+  public final WhatsAppClientType clientType;
+  /**
+   * The otp code, null if the intent does not carry a code
+   */
+  public final String code;
+  /**
+   * The debug signal carried by the intent, its attributes are null if there is none
+   */
+  public final DebugSignal debugSignal;
+
+  /**
+   * Constructor
+   * @param clientType the WhatsApp client which sent the intent
+   * @param code the otp code
+   * @param debugSignal the debug signal
+   */
+  public WhatsAppOtpIncomingResult(final WhatsAppClientType clientType, final String code,
+      final DebugSignal debugSignal) {
+    this.clientType = clientType;
+    this.code = code;
+    this.debugSignal = debugSignal;
+  }
+
+  /**
+   * @return true if the intent carries an otp code
+   */
+  public boolean hasCode() {
+    return code != null;
+  }
+}
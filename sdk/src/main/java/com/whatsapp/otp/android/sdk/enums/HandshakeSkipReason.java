@@ -0,0 +1,20 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.enums;
+
+public enum HandshakeSkipReason {
+  /** A handshake was already sent to the client within the handshake ttl */
+  DEBOUNCED,
+  /** The client is not installed, only reported by targeted handshakes */
+  NOT_INSTALLED,
+  /** The client has no receiver for the handshake, only reported by targeted handshakes */
+  HANDSHAKE_NOT_SUPPORTED,
+  /** The handshake rate limit was reached and the handshake was dropped */
+  RATE_LIMITED,
+  /** The handshake rate limit was reached and the handshake was deferred until it is allowed */
+  QUEUED
+}
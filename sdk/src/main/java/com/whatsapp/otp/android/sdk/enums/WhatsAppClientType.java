@@ -6,11 +6,23 @@
  */
 package com.whatsapp.otp.android.sdk.enums;
 
+import androidx.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
 public enum WhatsAppClientType {
 
   CONSUMER("com.whatsapp"),
   BUSINESS("com.whatsapp.w4b");
 
+  private static final Map<String, WhatsAppClientType> BY_PACKAGE_NAME = new HashMap<>();
+
+  static {
+    for (WhatsAppClientType type : values()) {
+      BY_PACKAGE_NAME.put(type.packageName, type);
+    }
+  }
+
   private String packageName;
 
   WhatsAppClientType(String packageName) {
@@ -20,4 +32,16 @@ public enum WhatsAppClientType {
   public String getPackageName() {
     return this.packageName;
   }
+
+  /**
+   * Find the client type of a package name. The lookup does not allocate.
+   *
+   * @param packageName a package name
+   * @return the WhatsApp client with the given package name, or null if it is not a WhatsApp
+   * package
+   */
+  @Nullable
+  public static WhatsAppClientType fromPackageName(final @Nullable String packageName) {
+    return packageName == null ? null : BY_PACKAGE_NAME.get(packageName);
+  }
 }
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk.exceptions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppOtpError;
+
+public class WhatsAppOtpErrorException extends RuntimeException {
+
+  private final WhatsAppOtpError error;
+
+  public WhatsAppOtpErrorException(final @NonNull WhatsAppOtpError error,
+      final @Nullable Exception cause) {
+    super(error.name(), cause);
+    this.error = error;
+  }
+
+  @NonNull
+  public WhatsAppOtpError getError() {
+    return error;
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class HandshakeRateLimiterTest {
+
+  private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void test_acquireWithinBurst_isAllowed() {
+    // setup
+    HandshakeRateLimiter rateLimiter = new HandshakeRateLimiter(1, 3);
+    long now = System.nanoTime();
+    // test
+    long first = rateLimiter.acquire(now);
+    long second = rateLimiter.acquire(now);
+    long third = rateLimiter.acquire(now);
+    long fourth = rateLimiter.acquire(now);
+    // assertions
+    assertThat(first).isZero();
+    assertThat(second).isZero();
+    assertThat(third).isZero();
+    assertThat(fourth).isEqualTo(HandshakeRateLimiter.REJECTED);
+  }
+
+  @Test
+  public void test_acquireAfterRefill_isAllowed() {
+    // setup
+    HandshakeRateLimiter rateLimiter = new HandshakeRateLimiter(2, 1);
+    long now = System.nanoTime();
+    rateLimiter.acquire(now);
+    // test
+    long tooEarly = rateLimiter.acquire(now + ONE_SECOND / 4);
+    long refilled = rateLimiter.acquire(now + ONE_SECOND / 2);
+    // assertions
+    assertThat(tooEarly).isEqualTo(HandshakeRateLimiter.REJECTED);
+    assertThat(refilled).isZero();
+  }
+
+  @Test
+  public void test_acquireOverLimitWithQueue_returnsDelay() {
+    // setup
+    HandshakeRateLimiter rateLimiter = new HandshakeRateLimiter(1, 1, 2, TimeUnit.SECONDS);
+    long now = System.nanoTime();
+    // test
+    long first = rateLimiter.acquire(now);
+    long second = rateLimiter.acquire(now);
+    long third = rateLimiter.acquire(now);
+    long fourth = rateLimiter.acquire(now);
+    // assertions
+    assertThat(first).isZero();
+    assertThat(second).isEqualTo(ONE_SECOND);
+    assertThat(third).isEqualTo(2 * ONE_SECOND);
+    assertThat(fourth).isEqualTo(HandshakeRateLimiter.REJECTED);
+  }
+
+  @Test
+  public void test_acquireConcurrently_allowsBurstOnly() throws Exception {
+    // setup
+    int threads = 8;
+    int attemptsPerThread = 100;
+    HandshakeRateLimiter rateLimiter = new HandshakeRateLimiter(0.001, 10);
+    long now = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> futures = new ArrayList<>();
+    // test
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        int allowed = 0;
+        for (int attempt = 0; attempt < attemptsPerThread; attempt++) {
+          if (rateLimiter.acquire(now) == 0) {
+            allowed++;
+          }
+        }
+        return allowed;
+      }));
+    }
+    start.countDown();
+    int allowed = 0;
+    for (Future<Integer> future : futures) {
+      allowed += future.get(10, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    // assertions
+    assertThat(allowed).isEqualTo(10);
+  }
+
+  @Test
+  public void test_createWithInvalidArguments_failsWithIllegalArgumentException() {
+    Assertions.assertThatIllegalArgumentException().isThrownBy(() ->
+        new HandshakeRateLimiter(0, 1));
+    Assertions.assertThatIllegalArgumentException().isThrownBy(() ->
+        new HandshakeRateLimiter(1, 0));
+    Assertions.assertThatIllegalArgumentException().isThrownBy(() ->
+        new HandshakeRateLimiter(1, 1, -1, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.whatsapp.otp.android.sdk.data.LatencySnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  @Test
+  public void test_snapshotEmpty_returnsZeros() {
+    // test
+    LatencySnapshot snapshot = LatencyHistogram.snapshot(histogram);
+    // assertions
+    assertThat(snapshot.count).isZero();
+    assertThat(snapshot.p50Nanos).isZero();
+    assertThat(snapshot.maxNanos).isZero();
+  }
+
+  @Test
+  public void test_snapshot_returnsPercentilesWithinPrecision() {
+    // setup
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    // test
+    LatencySnapshot snapshot = LatencyHistogram.snapshot(histogram);
+    // assertions
+    assertThat(snapshot.count).isEqualTo(1000);
+    assertWithinPrecision(snapshot.p50Nanos, TimeUnit.MILLISECONDS.toNanos(500));
+    assertWithinPrecision(snapshot.p90Nanos, TimeUnit.MILLISECONDS.toNanos(900));
+    assertWithinPrecision(snapshot.p99Nanos, TimeUnit.MILLISECONDS.toNanos(990));
+    assertWithinPrecision(snapshot.maxNanos, TimeUnit.MILLISECONDS.toNanos(1000));
+  }
+
+  @Test
+  public void test_snapshotOfSeveralHistograms_mergesCounts() {
+    // setup
+    LatencyHistogram other = new LatencyHistogram();
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    other.record(TimeUnit.SECONDS.toNanos(10));
+    // test
+    LatencySnapshot snapshot = LatencyHistogram.snapshot(histogram, other);
+    // assertions
+    assertThat(snapshot.count).isEqualTo(2);
+    assertWithinPrecision(snapshot.p50Nanos, TimeUnit.MILLISECONDS.toNanos(10));
+    assertWithinPrecision(snapshot.maxNanos, TimeUnit.SECONDS.toNanos(10));
+  }
+
+  @Test
+  public void test_recordOutOfRange_isClampedOrIgnored() {
+    // test
+    histogram.record(-1);
+    histogram.record(TimeUnit.DAYS.toNanos(30));
+    // assertions
+    LatencySnapshot snapshot = LatencyHistogram.snapshot(histogram);
+    assertThat(snapshot.count).isEqualTo(1);
+    assertThat(snapshot.maxNanos)
+        .isEqualTo(TimeUnit.MICROSECONDS.toNanos(LatencyHistogram.MAX_TRACKABLE_MICROS));
+  }
+
+  @Test
+  public void test_bucketIndex_isContinuousAndBounded() {
+    // setup
+    List<Long> values = new ArrayList<>();
+    for (long value = 0; value < 4096; value++) {
+      values.add(value);
+    }
+    values.add(LatencyHistogram.MAX_TRACKABLE_MICROS);
+    // assertions
+    for (long value : values) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertThat(LatencyHistogram.highestValueInBucket(index)).isGreaterThanOrEqualTo(value);
+      if (index > 0) {
+        assertThat(LatencyHistogram.highestValueInBucket(index - 1)).isLessThan(value);
+      }
+    }
+    assertThat(LatencyHistogram.highestValueInBucket(
+        LatencyHistogram.bucketIndex(LatencyHistogram.MAX_TRACKABLE_MICROS)))
+        .isEqualTo(LatencyHistogram.MAX_TRACKABLE_MICROS);
+  }
+
+  @Test
+  public void test_resetAfterRecord_returnsZeros() {
+    // setup
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    // test
+    histogram.reset();
+    // assertions
+    assertThat(LatencyHistogram.snapshot(histogram).count).isZero();
+  }
+
+  private static void assertWithinPrecision(long actualNanos, long expectedNanos) {
+    assertThat(actualNanos).isGreaterThanOrEqualTo(expectedNanos)
+        .isCloseTo(expectedNanos, Offset.offset(expectedNanos / 16));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.content.pm.ResolveInfo;
+import com.whatsapp.otp.android.sdk.data.WhatsAppClientCapability;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class WhatsAppClientCapabilityCacheTest {
+
+  private final Context mockedContext = Mockito.mock(Context.class);
+  private final PackageManager mockedPackageManager = Mockito.mock(PackageManager.class);
+
+  private final WhatsAppClientCapabilityCache capabilityCache = new WhatsAppClientCapabilityCache();
+
+  @Before
+  public void setup() {
+    doReturn(mockedPackageManager).when(mockedContext).getPackageManager();
+    WhatsAppClientCapabilityCache.resetPackageChangeReceiver();
+  }
+
+  @After
+  public void tearDown() {
+    WhatsAppClientCapabilityCache.resetPackageChangeReceiver();
+  }
+
+  @Test
+  public void test_getInstalledWithReceiver_returnsCapability() throws NameNotFoundException {
+    // setup
+    PackageInfo packageInfo = new PackageInfo();
+    packageInfo.setLongVersionCode(231L);
+    doReturn(packageInfo).when(mockedPackageManager)
+        .getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+    doReturn(Collections.singletonList(Mockito.mock(ResolveInfo.class)))
+        .when(mockedPackageManager).queryBroadcastReceivers(any(Intent.class), eq(0));
+    // test
+    WhatsAppClientCapability capability = capabilityCache.get(mockedContext,
+        WhatsAppClientType.CONSUMER);
+    // assertions
+    assertThat(capability.clientType).isEqualTo(WhatsAppClientType.CONSUMER);
+    assertThat(capability.installed).isTrue();
+    assertThat(capability.handshakeSupported).isTrue();
+    assertThat(capability.versionCode).isEqualTo(231L);
+  }
+
+  @Test
+  public void test_getNotInstalled_skipsReceiverQuery() throws NameNotFoundException {
+    // setup
+    doThrow(new NameNotFoundException()).when(mockedPackageManager)
+        .getPackageInfo(anyString(), eq(0));
+    // test
+    WhatsAppClientCapability capability = capabilityCache.get(mockedContext,
+        WhatsAppClientType.BUSINESS);
+    // assertions
+    assertThat(capability.installed).isFalse();
+    assertThat(capability.handshakeSupported).isFalse();
+    assertThat(capability.versionCode).isEqualTo(WhatsAppClientCapability.UNKNOWN_VERSION_CODE);
+    verify(mockedPackageManager, never()).queryBroadcastReceivers(any(Intent.class), eq(0));
+  }
+
+  @Test
+  public void test_getTwice_queriesPackageManagerOnce() throws NameNotFoundException {
+    // test
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    // assertions
+    verify(mockedPackageManager, times(1))
+        .getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+    verify(mockedPackageManager, times(1)).queryBroadcastReceivers(any(Intent.class), eq(0));
+  }
+
+  @Test
+  public void test_getAfterInvalidate_queriesPackageManagerAgain() throws NameNotFoundException {
+    // test
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    capabilityCache.invalidate();
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    // assertions
+    verify(mockedPackageManager, times(2))
+        .getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_getAfterPackageChange_queriesPackageManagerAgain()
+      throws NameNotFoundException {
+    // test
+    capabilityCache.get(mockedContext, WhatsAppClientType.BUSINESS);
+    WhatsAppClientCapabilityCache.invalidateAll();
+    capabilityCache.get(mockedContext, WhatsAppClientType.BUSINESS);
+    // assertions
+    verify(mockedPackageManager, times(2))
+        .getPackageInfo(eq(WhatsAppClientType.BUSINESS.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_invalidateDuringLoad_isNotLost() throws NameNotFoundException {
+    // setup
+    doAnswer(invocation -> {
+      capabilityCache.invalidate();
+      throw new NameNotFoundException();
+    }).doThrow(new NameNotFoundException()).when(mockedPackageManager)
+        .getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+    // test
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    // assertions
+    verify(mockedPackageManager, times(2))
+        .getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_receiverRegistrationFails_registersOnceAndDoesNotCache()
+      throws NameNotFoundException {
+    // setup
+    doThrow(new SecurityException()).when(mockedContext)
+        .registerReceiver(any(), any(IntentFilter.class));
+    doThrow(new SecurityException()).when(mockedContext)
+        .registerReceiver(any(), any(IntentFilter.class), anyInt());
+    // test
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    // assertions
+    verify(mockedContext, times(1)).registerReceiver(any(), any(IntentFilter.class), anyInt());
+    verify(mockedPackageManager, times(3))
+        .getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_registerPackage_reRegistersReceiverForVariant() {
+    // setup
+    capabilityCache.get(mockedContext, WhatsAppClientType.CONSUMER);
+    // test
+    try {
+      WhatsAppClientRegistry.registerPackage("com.whatsapp.beta", WhatsAppClientType.CONSUMER);
+    } finally {
+      WhatsAppClientRegistry.unregisterPackage("com.whatsapp.beta");
+    }
+    // assertions
+    ArgumentCaptor<BroadcastReceiver> receiverCaptor = ArgumentCaptor.forClass(
+        BroadcastReceiver.class);
+    ArgumentCaptor<IntentFilter> filterCaptor = ArgumentCaptor.forClass(IntentFilter.class);
+    verify(mockedContext, times(3)).registerReceiver(receiverCaptor.capture(),
+        filterCaptor.capture(), anyInt());
+    IntentFilter initialFilter = filterCaptor.getAllValues().get(0);
+    assertThat(initialFilter.hasDataSchemeSpecificPart("com.whatsapp")).isTrue();
+    assertThat(initialFilter.hasDataSchemeSpecificPart("com.whatsapp.w4b")).isTrue();
+    assertThat(initialFilter.hasDataSchemeSpecificPart("com.whatsapp.beta")).isFalse();
+    assertThat(initialFilter.hasDataSchemeSpecificPart("com.example")).isFalse();
+    assertThat(filterCaptor.getAllValues().get(1).hasDataSchemeSpecificPart("com.whatsapp.beta"))
+        .isTrue();
+    assertThat(filterCaptor.getAllValues().get(2).hasDataSchemeSpecificPart("com.whatsapp.beta"))
+        .isFalse();
+    verify(mockedContext).unregisterReceiver(receiverCaptor.getAllValues().get(0));
+    verify(mockedContext).unregisterReceiver(receiverCaptor.getAllValues().get(1));
+  }
+}
\ No newline at end of file
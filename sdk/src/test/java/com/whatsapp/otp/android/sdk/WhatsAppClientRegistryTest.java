@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class WhatsAppClientRegistryTest {
+
+  private static final String BETA_PACKAGE = "com.whatsapp.beta";
+
+  @After
+  public void tearDown() {
+    WhatsAppClientRegistry.unregisterPackage(BETA_PACKAGE);
+  }
+
+  @Test
+  public void test_defaultPackages_areRegistered() {
+    // assertions
+    assertThat(WhatsAppClientRegistry.getClientType("com.whatsapp"))
+        .isEqualTo(WhatsAppClientType.CONSUMER);
+    assertThat(WhatsAppClientRegistry.getClientType("com.whatsapp.w4b"))
+        .isEqualTo(WhatsAppClientType.BUSINESS);
+    assertThat(WhatsAppClientRegistry.getClientType("com.not.from.wa")).isNull();
+    assertThat(WhatsAppClientRegistry.getClientType(null)).isNull();
+    assertThat(WhatsAppClientRegistry.getPackageNames(WhatsAppClientType.CONSUMER))
+        .containsExactly("com.whatsapp");
+  }
+
+  @Test
+  public void test_registerPackage_addsVariant() {
+    // test
+    WhatsAppClientRegistry.registerPackage(BETA_PACKAGE, WhatsAppClientType.CONSUMER);
+    // assertions
+    assertThat(WhatsAppClientRegistry.getClientType(BETA_PACKAGE))
+        .isEqualTo(WhatsAppClientType.CONSUMER);
+    assertThat(WhatsAppClientType.fromPackageName(BETA_PACKAGE)).isNull();
+    assertThat(WhatsAppClientRegistry.getPackageNames(WhatsAppClientType.CONSUMER))
+        .containsExactly("com.whatsapp", BETA_PACKAGE);
+    assertThat(WhatsAppClientRegistry.getPackageNames(WhatsAppClientType.BUSINESS))
+        .containsExactly("com.whatsapp.w4b");
+  }
+
+  @Test
+  public void test_registerPackageAgain_movesVariant() {
+    // setup
+    WhatsAppClientRegistry.registerPackage(BETA_PACKAGE, WhatsAppClientType.CONSUMER);
+    // test
+    WhatsAppClientRegistry.registerPackage(BETA_PACKAGE, WhatsAppClientType.BUSINESS);
+    // assertions
+    assertThat(WhatsAppClientRegistry.getClientType(BETA_PACKAGE))
+        .isEqualTo(WhatsAppClientType.BUSINESS);
+    assertThat(WhatsAppClientRegistry.getPackageNames(WhatsAppClientType.CONSUMER))
+        .containsExactly("com.whatsapp");
+    assertThat(WhatsAppClientRegistry.getPackageNames(WhatsAppClientType.BUSINESS))
+        .containsExactly("com.whatsapp.w4b", BETA_PACKAGE);
+  }
+
+  @Test
+  public void test_unregisterPackage_removesVariant() {
+    // setup
+    WhatsAppClientRegistry.registerPackage(BETA_PACKAGE, WhatsAppClientType.CONSUMER);
+    // test
+    WhatsAppClientRegistry.unregisterPackage(BETA_PACKAGE);
+    // assertions
+    assertThat(WhatsAppClientRegistry.getClientType(BETA_PACKAGE)).isNull();
+    assertThat(WhatsAppClientRegistry.getPackageNames(WhatsAppClientType.CONSUMER))
+        .containsExactly("com.whatsapp");
+  }
+
+  @Test
+  public void test_registerDefaultPackage_failsWithIllegalArgumentException() {
+    Assertions.assertThatIllegalArgumentException().isThrownBy(() ->
+        WhatsAppClientRegistry.registerPackage("com.whatsapp", WhatsAppClientType.BUSINESS));
+    Assertions.assertThatIllegalArgumentException().isThrownBy(() ->
+        WhatsAppClientRegistry.unregisterPackage("com.whatsapp.w4b"));
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class WhatsAppOtpComponentSessionTest {
+
+  private static final Map<Class<?>, Integer> ENABLED = Collections.singletonMap(Object.class,
+      PackageManager.COMPONENT_ENABLED_STATE_ENABLED);
+  private static final Map<Class<?>, Integer> DISABLED = Collections.singletonMap(Object.class,
+      PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+
+  private final Context mockedContext = Mockito.mock(Context.class);
+  private final WhatsAppOtpUtils mockedUtils = Mockito.mock(WhatsAppOtpUtils.class);
+  private final ScheduledExecutorService mockedScheduler = Mockito.mock(
+      ScheduledExecutorService.class);
+
+  private final WhatsAppOtpComponentSession session = new WhatsAppOtpComponentSession(
+      mockedContext, Object.class, mockedUtils, mockedScheduler);
+
+  @After
+  public void tearDown() {
+    session.finish();
+  }
+
+  @Test
+  public void test_start_enablesComponentRightAway() {
+    // test
+    session.start(1, TimeUnit.MINUTES);
+    // assertions
+    assertThat(session.isActive()).isTrue();
+    verify(mockedUtils).changeComponentStates(mockedContext, ENABLED, Collections.emptyMap());
+    verify(mockedScheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+  }
+
+  @Test
+  public void test_startTwice_doesNotEnableAgain() {
+    // test
+    session.start(1, TimeUnit.MINUTES);
+    session.start(1, TimeUnit.MINUTES);
+    session.applyScheduledState();
+    // assertions
+    verify(mockedUtils, times(1)).changeComponentStates(any(), anyMap(), anyMap());
+  }
+
+  @Test
+  public void test_rapidFlips_coalesceIntoFinalState() {
+    // test
+    session.start(1, TimeUnit.MINUTES);
+    session.finish();
+    session.start(1, TimeUnit.MINUTES);
+    session.finish();
+    session.start(1, TimeUnit.MINUTES);
+    session.applyScheduledState();
+    // assertions
+    verify(mockedScheduler, times(1)).schedule(any(Runnable.class), anyLong(),
+        eq(TimeUnit.MILLISECONDS));
+    verify(mockedUtils, times(1)).changeComponentStates(mockedContext, ENABLED,
+        Collections.emptyMap());
+    verify(mockedUtils, never()).changeComponentStates(any(), eq(DISABLED), anyMap());
+  }
+
+  @Test
+  public void test_finish_disablesComponentWithoutReadingState() {
+    // setup
+    session.start(1, TimeUnit.MINUTES);
+    // test
+    session.finish();
+    session.applyScheduledState();
+    // assertions
+    assertThat(session.isActive()).isFalse();
+    verify(mockedUtils).changeComponentStates(mockedContext, DISABLED, ENABLED);
+  }
+
+  @Test
+  public void test_codeReceived_disablesComponent() {
+    // setup
+    session.start(1, TimeUnit.MINUTES);
+    // test
+    OtpCodeWaiters.complete("123456");
+    session.applyScheduledState();
+    // assertions
+    assertThat(session.isActive()).isFalse();
+    verify(mockedUtils).changeComponentStates(mockedContext, DISABLED, ENABLED);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.whatsapp.otp.android.sdk.data.DebugSignal;
+import com.whatsapp.otp.android.sdk.data.DebugSignalSnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class WhatsAppOtpDebugSignalAggregatorTest {
+
+  private static final DebugSignal EXPIRED = new DebugSignal("otp_request_expired", "expired");
+  private static final DebugSignal SIGNATURE = new DebugSignal("incorrect_signature_hash", null);
+  private static final DebugSignal UNKNOWN = new DebugSignal("new_identifier", null);
+  private static final DebugSignal MISSING = new DebugSignal(null, "missing");
+
+  @Test
+  public void test_record_countsPerIdentifier() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(8);
+    // test
+    aggregator.record(EXPIRED);
+    aggregator.record(EXPIRED);
+    aggregator.record(SIGNATURE);
+    aggregator.record(UNKNOWN);
+    aggregator.record(MISSING);
+    DebugSignalSnapshot snapshot = aggregator.getSnapshot();
+    // assertions
+    assertThat(snapshot.countsByIdentifier)
+        .containsEntry("otp_request_expired", 2L)
+        .containsEntry("incorrect_signature_hash", 1L)
+        .containsEntry("incompatible_os_version", 0L)
+        .containsEntry("ambiguous_delivery_destination", 0L)
+        .containsEntry("missing_handshake_or_disorder", 0L)
+        .containsEntry("new_identifier", 1L);
+    assertThat(snapshot.otherCount).isEqualTo(1);
+    assertThat(snapshot.getTotalCount()).isEqualTo(5);
+    assertThat(snapshot.recentSignals)
+        .containsExactly(EXPIRED, EXPIRED, SIGNATURE, UNKNOWN, MISSING);
+  }
+
+  @Test
+  public void test_recordPastMaxIdentifiers_countsFurtherIdentifiersTogether() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(8);
+    // test
+    for (int i = 0; i < WhatsAppOtpDebugSignalAggregator.MAX_IDENTIFIERS; i++) {
+      aggregator.record(new DebugSignal("identifier_" + i, null));
+    }
+    DebugSignalSnapshot snapshot = aggregator.getSnapshot();
+    // assertions
+    assertThat(snapshot.countsByIdentifier)
+        .hasSize(WhatsAppOtpDebugSignalAggregator.MAX_IDENTIFIERS)
+        .containsEntry("otp_request_expired", 0L)
+        .containsEntry("identifier_0", 1L)
+        .doesNotContainKey("identifier_31");
+    assertThat(snapshot.otherCount).isEqualTo(5);
+    assertThat(snapshot.getTotalCount()).isEqualTo(32);
+  }
+
+  @Test
+  public void test_record_keepsLatestSignalsOnly() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(2);
+    // test
+    aggregator.record(EXPIRED);
+    aggregator.record(SIGNATURE);
+    aggregator.record(UNKNOWN);
+    // assertions
+    assertThat(aggregator.getSnapshot().recentSignals).containsExactly(SIGNATURE, UNKNOWN);
+  }
+
+  @Test
+  public void test_snapshot_isImmutable() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(4);
+    aggregator.record(EXPIRED);
+    // test
+    DebugSignalSnapshot snapshot = aggregator.getSnapshot();
+    aggregator.record(SIGNATURE);
+    // assertions
+    assertThat(snapshot.getTotalCount()).isEqualTo(1);
+    assertThat(snapshot.recentSignals).containsExactly(EXPIRED);
+    Assertions.assertThatThrownBy(() -> snapshot.recentSignals.add(UNKNOWN))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void test_reset_dropsEverything() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(4);
+    aggregator.record(EXPIRED);
+    aggregator.record(UNKNOWN);
+    // test
+    aggregator.reset();
+    // assertions
+    DebugSignalSnapshot snapshot = aggregator.getSnapshot();
+    assertThat(snapshot.getTotalCount()).isZero();
+    assertThat(snapshot.recentSignals).isEmpty();
+  }
+
+  @Test
+  public void test_concurrentRecord_countsEverySignal() throws Exception {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(16);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    // test
+    for (int thread = 0; thread < 4; thread++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 1000; i++) {
+          aggregator.record(EXPIRED);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    // assertions
+    DebugSignalSnapshot snapshot = aggregator.getSnapshot();
+    assertThat(snapshot.countsByIdentifier).containsEntry("otp_request_expired", 4000L);
+    assertThat(snapshot.recentSignals).hasSize(16);
+  }
+
+  @Test
+  public void test_snapshotWhileRecording_listsEachWriterSignalsInOrder() throws Exception {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(4);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    List<Future<?>> futures = new ArrayList<>();
+    // test
+    for (int thread = 0; thread < 2; thread++) {
+      final String writer = String.valueOf(thread);
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 10000; i++) {
+          aggregator.record(new DebugSignal(writer, String.valueOf(i)));
+        }
+      }));
+    }
+    List<List<DebugSignal>> snapshots = new ArrayList<>();
+    while (!futures.stream().allMatch(Future::isDone)) {
+      snapshots.add(aggregator.getSnapshot().recentSignals);
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    // assertions
+    for (List<DebugSignal> signals : snapshots) {
+      assertThat(signals).hasSizeLessThanOrEqualTo(4);
+      int[] lastByWriter = {-1, -1};
+      for (DebugSignal signal : signals) {
+        int writer = Integer.parseInt(signal.otpErrorIdentifier);
+        int number = Integer.parseInt(signal.otpErrorMessage);
+        assertThat(number).isGreaterThan(lastByWriter[writer]);
+        lastByWriter[writer] = number;
+      }
+    }
+  }
+
+  @Test
+  public void test_rememberOlderSignalAfterNewerInSameSlot_keepsNewerSignal() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(4);
+    DebugSignal older = new DebugSignal("older", null);
+    aggregator.record(EXPIRED);
+    aggregator.record(EXPIRED);
+    aggregator.record(EXPIRED);
+    aggregator.record(EXPIRED);
+    // test
+    // the fifth signal takes the slot of the first one, whose writer resumes after it
+    aggregator.record(SIGNATURE);
+    aggregator.remember(older, 1);
+    // assertions
+    assertThat(aggregator.getSnapshot().recentSignals)
+        .containsExactly(EXPIRED, EXPIRED, EXPIRED, SIGNATURE);
+  }
+
+  @Test
+  public void test_recordAfterReset_keepsSignalWrittenDuringReset() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(2);
+    aggregator.record(EXPIRED);
+    aggregator.record(EXPIRED);
+    aggregator.record(EXPIRED);
+    aggregator.reset();
+    // test
+    // a writer which took the third sequence before the reset finishes after it
+    aggregator.remember(UNKNOWN, 3);
+    aggregator.record(SIGNATURE);
+    aggregator.record(SIGNATURE);
+    // assertions
+    assertThat(aggregator.getSnapshot().recentSignals).containsExactly(SIGNATURE, SIGNATURE);
+  }
+
+  @Test
+  public void test_identifierId_followsKnownThenSeenIdentifiers() {
+    // setup
+    WhatsAppOtpDebugSignalAggregator aggregator = new WhatsAppOtpDebugSignalAggregator(4);
+    // assertions
+    assertThat(aggregator.identifierId("incompatible_os_version")).isEqualTo(0);
+    assertThat(aggregator.identifierId("otp_request_expired")).isEqualTo(3);
+    assertThat(aggregator.identifierId("missing_handshake_or_disorder")).isEqualTo(4);
+    assertThat(aggregator.identifierId("new_identifier")).isEqualTo(5);
+    assertThat(aggregator.identifierId("other_identifier")).isEqualTo(6);
+    assertThat(aggregator.identifierId("new_identifier")).isEqualTo(5);
+    assertThat(aggregator.identifierId(null))
+        .isEqualTo(WhatsAppOtpDebugSignalAggregator.MAX_IDENTIFIERS);
+  }
+
+  @Test
+  public void test_constructor_rejectsInvalidCapacity() {
+    // assertions
+    Assertions.assertThatThrownBy(() -> new WhatsAppOtpDebugSignalAggregator(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.whatsapp.otp.android.sdk.data.DebugSignal;
+import com.whatsapp.otp.android.sdk.data.WhatsAppOtpIncomingResult;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.Test;
+
+public class WhatsAppOtpEventHubTest {
+
+  private static final WhatsAppOtpIncomingResult EVENT = new WhatsAppOtpIncomingResult(
+      WhatsAppClientType.CONSUMER, "567567", new DebugSignal(null, null));
+
+  @Test
+  public void test_publish_deliversToEverySubscriber() {
+    // setup
+    WhatsAppOtpEventHub eventHub = new WhatsAppOtpEventHub(Runnable::run, 4);
+    RecordingSubscriber first = new RecordingSubscriber(Long.MAX_VALUE);
+    RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+    eventHub.subscribe(first);
+    eventHub.subscribe(second);
+    // test
+    eventHub.publish(EVENT);
+    // assertions
+    assertThat(eventHub.getSubscriberCount()).isEqualTo(2);
+    assertThat(first.events).containsExactly(EVENT);
+    assertThat(second.events).containsExactly(EVENT);
+    assertThat(eventHub.getDroppedCount()).isZero();
+  }
+
+  @Test
+  public void test_publishWithoutDemand_dropsEventsOverBuffer() {
+    // setup
+    WhatsAppOtpEventHub eventHub = new WhatsAppOtpEventHub(Runnable::run, 2);
+    RecordingSubscriber subscriber = new RecordingSubscriber(0);
+    eventHub.subscribe(subscriber);
+    // test
+    for (int i = 0; i < 10; i++) {
+      eventHub.publish(EVENT);
+    }
+    subscriber.subscription.request(Long.MAX_VALUE);
+    // assertions
+    assertThat(eventHub.getDroppedCount()).isPositive();
+    assertThat(subscriber.events).isNotEmpty();
+    assertThat(subscriber.events.size() + eventHub.getDroppedCount()).isEqualTo(10);
+  }
+
+  @Test
+  public void test_close_completesSubscribers() {
+    // setup
+    WhatsAppOtpEventHub eventHub = new WhatsAppOtpEventHub(Runnable::run, 4);
+    RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+    eventHub.subscribe(subscriber);
+    // test
+    eventHub.close();
+    eventHub.publish(EVENT);
+    // assertions
+    assertThat(subscriber.completed).isTrue();
+    assertThat(subscriber.events).isEmpty();
+  }
+
+  private static class RecordingSubscriber implements Flow.Subscriber<WhatsAppOtpIncomingResult> {
+
+    private final long initialDemand;
+    private final List<WhatsAppOtpIncomingResult> events = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private boolean completed;
+
+    private RecordingSubscriber(long initialDemand) {
+      this.initialDemand = initialDemand;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (initialDemand > 0) {
+        subscription.request(initialDemand);
+      }
+    }
+
+    @Override
+    public void onNext(WhatsAppOtpIncomingResult item) {
+      events.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
\ No newline at end of file
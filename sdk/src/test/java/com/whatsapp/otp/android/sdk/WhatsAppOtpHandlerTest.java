@@ -8,6 +8,7 @@ package com.whatsapp.otp.android.sdk;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -18,18 +19,30 @@ import static org.mockito.Mockito.verify;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.ResolveInfo;
 import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
+import com.whatsapp.otp.android.sdk.data.HandshakeResult;
+import com.whatsapp.otp.android.sdk.data.WhatsAppCapabilityReport;
+import com.whatsapp.otp.android.sdk.enums.HandshakeSkipReason;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
@@ -38,6 +51,9 @@ import org.robolectric.RobolectricTestRunner;
 @RunWith(RobolectricTestRunner.class)
 public class WhatsAppOtpHandlerTest {
 
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private final Context context = ApplicationProvider.getApplicationContext();
 
   private final WhatsAppOtpIntentBuilder mockedWhatsAppOtpIntentBuilder = Mockito.mock(
@@ -103,6 +119,326 @@ public class WhatsAppOtpHandlerTest {
     verify(mockedContext, times(2)).sendBroadcast(any(Intent.class));
   }
 
+  @Test
+  public void test_sendOtpIntentToWhatsAppAsync_succeeds() throws Exception {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    List<Runnable> scheduledTasks = new ArrayList<>();
+    // test
+    CompletableFuture<HandshakeResult> future = waIntentHandlerWithMockedBuilder
+        .sendOtpIntentToWhatsAppAsync(mockedContext, scheduledTasks::add);
+    // assertions
+    verify(mockedContext, never()).sendBroadcast(any(Intent.class));
+    assertThat(scheduledTasks).hasSize(1);
+    scheduledTasks.get(0).run();
+    HandshakeResult result = future.get();
+    assertThat(result.getTargetedClients()).containsExactlyInAnyOrder(WhatsAppClientType.CONSUMER,
+        WhatsAppClientType.BUSINESS);
+    assertThat(result.getTotalDurationNanos()).isGreaterThanOrEqualTo(
+        result.getIntentBuildDurationNanos(WhatsAppClientType.CONSUMER)
+            + result.getBroadcastDurationNanos(WhatsAppClientType.CONSUMER));
+    verify(mockedContext, times(2)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppAsyncBuilderFails_completesExceptionally() {
+    // setup
+    doThrow(new IllegalStateException()).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    // test
+    CompletableFuture<HandshakeResult> future = waIntentHandlerWithMockedBuilder
+        .sendOtpIntentToWhatsAppAsync(mockedContext, Runnable::run);
+    // assertions
+    assertThat(future).isCompletedExceptionally();
+    verify(mockedContext, never()).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_prewarm_buildsIntentsAndCachesCapabilities() throws Exception {
+    // setup
+    PackageManager pm = mockQueryBroadcastReceivers(true);
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    List<Runnable> scheduledTasks = new ArrayList<>();
+    // test
+    CompletableFuture<WhatsAppCapabilityReport> future = waIntentHandlerWithMockedBuilder
+        .prewarm(mockedContext, scheduledTasks::add);
+    assertThat(scheduledTasks).hasSize(1);
+    scheduledTasks.get(0).run();
+    waIntentHandlerWithMockedBuilder.setTargetedHandshake(true);
+    waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext);
+    // assertions
+    WhatsAppCapabilityReport report = future.get();
+    assertThat(report.getInstalledClients()).containsExactlyInAnyOrder(
+        WhatsAppClientType.CONSUMER, WhatsAppClientType.BUSINESS);
+    assertThat(report.isAnyHandshakeSupported()).isTrue();
+    verify(mockedWhatsAppOtpIntentBuilder, times(2)).create(eq(mockedContext),
+        eq(WhatsAppClientType.CONSUMER));
+    verify(mockedWhatsAppOtpIntentBuilder, times(2)).create(eq(mockedContext),
+        eq(WhatsAppClientType.BUSINESS));
+    verify(pm, times(2)).queryBroadcastReceivers(any(Intent.class), eq(0));
+    verify(mockedContext, times(2)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppWithRegisteredVariant_broadcastsToVariant() {
+    // setup
+    doReturn(new Intent().setPackage(WhatsAppClientType.CONSUMER.getPackageName()))
+        .when(mockedWhatsAppOtpIntentBuilder).create(eq(mockedContext),
+            eq(WhatsAppClientType.CONSUMER));
+    doReturn(new Intent().setPackage(WhatsAppClientType.BUSINESS.getPackageName()))
+        .when(mockedWhatsAppOtpIntentBuilder).create(eq(mockedContext),
+            eq(WhatsAppClientType.BUSINESS));
+    WhatsAppClientRegistry.registerPackage("com.whatsapp.beta", WhatsAppClientType.CONSUMER);
+    // test
+    try {
+      waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext);
+    } finally {
+      WhatsAppClientRegistry.unregisterPackage("com.whatsapp.beta");
+    }
+    // assertions
+    ArgumentCaptor<Intent> intentCaptor = ArgumentCaptor.forClass(Intent.class);
+    verify(mockedContext, times(3)).sendBroadcast(intentCaptor.capture());
+    assertThat(getPackagesChecked(intentCaptor)).containsExactly("com.whatsapp",
+        "com.whatsapp.beta", "com.whatsapp.w4b");
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppOverRateLimit_isRejected() {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    WhatsAppOtpHandler.setHandshakeRateLimiter(new HandshakeRateLimiter(0.001, 1));
+    // test
+    HandshakeResult first;
+    HandshakeResult second;
+    try {
+      first = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+      second = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+    } finally {
+      WhatsAppOtpHandler.setHandshakeRateLimiter(null);
+    }
+    // assertions
+    assertThat(first.getTargetedClients()).hasSize(2);
+    assertThat(second.getTargetedClients()).isEmpty();
+    assertThat(second.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.RATE_LIMITED);
+    assertThat(second.getSkipReason(WhatsAppClientType.BUSINESS))
+        .isEqualTo(HandshakeSkipReason.RATE_LIMITED);
+    verify(mockedContext, times(2)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppDebounced_takesNoRateLimitToken() {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    waIntentHandlerWithMockedBuilder.setHandshakeTtl(1, TimeUnit.MINUTES);
+    WhatsAppOtpHandler.setHandshakeRateLimiter(new HandshakeRateLimiter(0.001, 2));
+    // test
+    HandshakeResult debounced;
+    HandshakeResult forced;
+    try {
+      waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+      debounced = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+      forced = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, true);
+    } finally {
+      WhatsAppOtpHandler.setHandshakeRateLimiter(null);
+    }
+    // assertions
+    assertThat(debounced.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.DEBOUNCED);
+    assertThat(forced.getTargetedClients()).hasSize(2);
+    verify(mockedContext, times(4)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppForcedOverRateLimit_keepsSharedHandshake()
+      throws IOException {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    WhatsAppOtpSharedHandshakeStore store = WhatsAppOtpSharedHandshakeStore.open(
+        new File(temporaryFolder.getRoot(), "handshakes"));
+    waIntentHandlerWithMockedBuilder.setSharedHandshakeStore(store);
+    waIntentHandlerWithMockedBuilder.setHandshakeTtl(1, TimeUnit.MINUTES);
+    WhatsAppOtpHandler.setHandshakeRateLimiter(new HandshakeRateLimiter(0.001, 1));
+    // test
+    long sentHandshake;
+    HandshakeResult forced;
+    try {
+      waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+      sentHandshake = store.getLastHandshakeMillis(WhatsAppClientType.CONSUMER);
+      forced = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, true);
+    } finally {
+      WhatsAppOtpHandler.setHandshakeRateLimiter(null);
+    }
+    // assertions
+    assertThat(forced.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.RATE_LIMITED);
+    assertThat(sentHandshake).isNotEqualTo(WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP);
+    assertThat(store.getLastHandshakeMillis(WhatsAppClientType.CONSUMER))
+        .isEqualTo(sentHandshake);
+    assertThat(store.getOutstandingSessionMillis(WhatsAppClientType.CONSUMER))
+        .isEqualTo(sentHandshake);
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppJournaledWithinTtl_readsJournalOnce()
+      throws IOException {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    File journalFile = new File(temporaryFolder.getRoot(), "journal");
+    WhatsAppOtpHandshakeJournal journal = WhatsAppOtpHandshakeJournal.open(journalFile);
+    // sent by an earlier process
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, System.currentTimeMillis());
+    journal.flush();
+    waIntentHandlerWithMockedBuilder.setHandshakeJournal(journal);
+    waIntentHandlerWithMockedBuilder.setHandshakeTtl(1, TimeUnit.MINUTES);
+    // test
+    HandshakeResult first = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    assertThat(journalFile.delete()).isTrue();
+    HandshakeResult second = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    // assertions
+    assertThat(first.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.DEBOUNCED);
+    assertThat(first.getTargetedClients()).containsExactly(WhatsAppClientType.BUSINESS);
+    assertThat(second.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.DEBOUNCED);
+    verify(mockedContext, times(1)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppAsyncOverRateLimit_isQueued() throws Exception {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    WhatsAppOtpHandler.setHandshakeRateLimiter(
+        new HandshakeRateLimiter(20, 1, 1, TimeUnit.SECONDS));
+    // test
+    CompletableFuture<HandshakeResult> deferred;
+    try {
+      waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+      deferred = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsAppAsync(mockedContext,
+          Runnable::run);
+    } finally {
+      WhatsAppOtpHandler.setHandshakeRateLimiter(null);
+    }
+    // assertions
+    HandshakeResult result = deferred.get(5, TimeUnit.SECONDS);
+    assertThat(result.getTargetedClients()).hasSize(2);
+    verify(mockedContext, times(4)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppWithinTtl_skipsDuplicateHandshake() {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    waIntentHandlerWithMockedBuilder.setHandshakeTtl(1, TimeUnit.MINUTES);
+    // test
+    HandshakeResult first = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    HandshakeResult second = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    // assertions
+    assertThat(first.getTargetedClients()).hasSize(2);
+    assertThat(first.getSkippedClients()).isEmpty();
+    assertThat(second.getTargetedClients()).isEmpty();
+    assertThat(second.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.DEBOUNCED);
+    assertThat(second.getSkipReason(WhatsAppClientType.BUSINESS))
+        .isEqualTo(HandshakeSkipReason.DEBOUNCED);
+    verify(mockedContext, times(2)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppForcedWithinTtl_sendsHandshake() {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    waIntentHandlerWithMockedBuilder.setHandshakeTtl(1, TimeUnit.MINUTES);
+    // test
+    waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false);
+    HandshakeResult forced = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, true);
+    // assertions
+    assertThat(forced.getTargetedClients()).hasSize(2);
+    verify(mockedContext, times(4)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppWithoutTtl_sendsEveryHandshake() {
+    // setup
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    // test
+    waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext);
+    waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext);
+    // assertions
+    verify(mockedContext, times(4)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppAfterFailure_isNotDebounced() {
+    // setup
+    waIntentHandlerWithMockedBuilder.setHandshakeTtl(1, TimeUnit.MINUTES);
+    doThrow(new IllegalStateException()).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    Assertions.assertThatIllegalStateException().isThrownBy(
+        () -> waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext, false));
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    // test
+    HandshakeResult result = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    // assertions
+    assertThat(result.getTargetedClients()).contains(WhatsAppClientType.CONSUMER);
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppTargeted_skipsClientNotInstalled()
+      throws NameNotFoundException {
+    // setup
+    PackageManager pm = mockQueryBroadcastReceivers(true);
+    doThrow(new NameNotFoundException()).when(pm)
+        .getPackageInfo(eq(WhatsAppClientType.BUSINESS.getPackageName()), eq(0));
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    waIntentHandlerWithMockedBuilder.setTargetedHandshake(true);
+    // test
+    HandshakeResult result = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    // assertions
+    assertThat(result.getTargetedClients()).containsExactly(WhatsAppClientType.CONSUMER);
+    assertThat(result.getSkipReason(WhatsAppClientType.BUSINESS))
+        .isEqualTo(HandshakeSkipReason.NOT_INSTALLED);
+    verify(mockedWhatsAppOtpIntentBuilder, never()).create(eq(mockedContext),
+        eq(WhatsAppClientType.BUSINESS));
+    verify(mockedContext, times(1)).sendBroadcast(any(Intent.class));
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppTargeted_skipsClientWithoutReceiver() {
+    // setup
+    mockQueryBroadcastReceivers(false);
+    waIntentHandlerWithMockedBuilder.setTargetedHandshake(true);
+    // test
+    HandshakeResult result = waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(
+        mockedContext, false);
+    // assertions
+    assertThat(result.getTargetedClients()).isEmpty();
+    assertThat(result.getSkipReason(WhatsAppClientType.CONSUMER))
+        .isEqualTo(HandshakeSkipReason.HANDSHAKE_NOT_SUPPORTED);
+    assertThat(result.getSkipReason(WhatsAppClientType.BUSINESS))
+        .isEqualTo(HandshakeSkipReason.HANDSHAKE_NOT_SUPPORTED);
+    verify(mockedContext, never()).sendBroadcast(any(Intent.class));
+  }
+
   @Test
   public void test_isWhatsAppOtpHandshakeSupported_returnsTrue() {
     // setup
@@ -304,6 +640,85 @@ public class WhatsAppOtpHandlerTest {
     assertHandshakeSupportedQuery(pm, WhatsAppClientType.BUSINESS, WhatsAppClientType.CONSUMER);
   }
 
+  @Test
+  public void test_isWhatsAppInstalledCalledTwice_queriesPackageManagerOnce()
+      throws NameNotFoundException {
+    // setup
+    PackageManager pm = mockPackageManager();
+    // test
+    waIntentHandlerWithMockedBuilder.isWhatsAppInstalled(mockedContext);
+    boolean installed = waIntentHandlerWithMockedBuilder.isWhatsAppInstalled(mockedContext);
+    // assertions
+    assertThat(installed).isTrue();
+    verify(pm, times(1)).getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_isWhatsAppInstalledAfterInvalidate_queriesPackageManagerAgain()
+      throws NameNotFoundException {
+    // setup
+    PackageManager pm = mockPackageManager();
+    // test
+    waIntentHandlerWithMockedBuilder.isWhatsAppInstalled(mockedContext,
+        WhatsAppClientType.BUSINESS);
+    waIntentHandlerWithMockedBuilder.invalidateCapabilityCache();
+    waIntentHandlerWithMockedBuilder.isWhatsAppInstalled(mockedContext,
+        WhatsAppClientType.BUSINESS);
+    // assertions
+    verify(pm, times(2)).getPackageInfo(eq(WhatsAppClientType.BUSINESS.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_probeConsumerWithReceiverBusinessNotInstalled_returnsReport()
+      throws NameNotFoundException {
+    // setup
+    PackageManager pm = mockPackageManager();
+    doReturn(Collections.singletonList(
+        mockedResolveInfoForPackage(WhatsAppClientType.CONSUMER.getPackageName())))
+        .when(pm).queryBroadcastReceivers(any(Intent.class), eq(0));
+    doThrow(new NameNotFoundException()).when(pm)
+        .getPackageInfo(eq(WhatsAppClientType.BUSINESS.getPackageName()), eq(0));
+    // test
+    WhatsAppCapabilityReport report = waIntentHandlerWithMockedBuilder.probe(mockedContext);
+    // assertions
+    assertThat(report.getInstalledClients()).containsExactly(WhatsAppClientType.CONSUMER);
+    assertThat(report.getHandshakeSupportedClients()).containsExactly(WhatsAppClientType.CONSUMER);
+    ArgumentCaptor<Intent> intentCaptor = ArgumentCaptor.forClass(Intent.class);
+    verify(pm, times(1)).queryBroadcastReceivers(intentCaptor.capture(), eq(0));
+    assertThat(intentCaptor.getValue().getPackage()).isNull();
+    assertQueryAction(intentCaptor);
+    verify(pm, never()).getPackageInfo(eq(WhatsAppClientType.CONSUMER.getPackageName()), eq(0));
+  }
+
+  @Test
+  public void test_probeBothInstalledWithoutReceiver_returnsReport() {
+    // setup
+    mockPackageManager();
+    // test
+    WhatsAppCapabilityReport report = waIntentHandlerWithMockedBuilder.probe(mockedContext);
+    // assertions
+    assertThat(report.isAnyInstalled()).isTrue();
+    assertThat(report.isInstalled(WhatsAppClientType.BUSINESS)).isTrue();
+    assertThat(report.isAnyHandshakeSupported()).isFalse();
+  }
+
+  @Test
+  public void test_sendOtpIntentToWhatsAppWithMetrics_reportsTimings() {
+    // setup
+    WhatsAppOtpMetrics mockedMetrics = Mockito.mock(WhatsAppOtpMetrics.class);
+    doReturn(Mockito.mock(Intent.class)).when(mockedWhatsAppOtpIntentBuilder)
+        .create(eq(mockedContext), any());
+    waIntentHandlerWithMockedBuilder.setMetrics(mockedMetrics);
+    // test
+    waIntentHandlerWithMockedBuilder.sendOtpIntentToWhatsApp(mockedContext);
+    // assertions
+    verify(mockedWhatsAppOtpIntentBuilder).setMetrics(mockedMetrics);
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      verify(mockedMetrics).onIntentBuilt(eq(type), anyLong());
+      verify(mockedMetrics).onBroadcastSent(eq(type), anyLong());
+    }
+  }
+
   @NonNull
   private static Set<String> collectActionsFromIntent(
       ArgumentCaptor<Intent> argumentCaptorForZeroTap) {
@@ -334,6 +749,14 @@ public class WhatsAppOtpHandlerTest {
     return receivers;
   }
 
+  @NonNull
+  private static ResolveInfo mockedResolveInfoForPackage(String packageName) {
+    ResolveInfo resolveInfo = new ResolveInfo();
+    resolveInfo.activityInfo = new ActivityInfo();
+    resolveInfo.activityInfo.packageName = packageName;
+    return resolveInfo;
+  }
+
   private PackageManager mockQueryBroadcastReceivers(boolean hasElements) {
     PackageManager pm = mockPackageManager();
     doReturn(mockedResolveInfoList(hasElements)).when(pm).queryBroadcastReceivers(any(), eq(0));
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.whatsapp.otp.android.sdk.data.HandshakeSession;
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WhatsAppOtpHandshakeJournalTest {
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+
+  private WhatsAppOtpHandshakeJournal journal;
+
+  private long now;
+
+  @Before
+  public void setup() throws IOException {
+    file = new File(temporaryFolder.getRoot(), "journal");
+    journal = WhatsAppOtpHandshakeJournal.open(file);
+    now = System.currentTimeMillis();
+  }
+
+  @Test
+  public void test_emptyJournal_hasNoOpenSession() {
+    // assertions
+    assertThat(journal.getOpenSession(WhatsAppClientType.CONSUMER)).isNull();
+    assertThat(journal.completeSession(WhatsAppClientType.CONSUMER, now)).isNull();
+  }
+
+  @Test
+  public void test_onHandshakeSent_opensSession() {
+    // test
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now - 2);
+    journal.flush();
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now - 1);
+    journal.flush();
+    // assertions
+    HandshakeSession session = journal.getOpenSession(WhatsAppClientType.CONSUMER);
+    assertThat(session).isNotNull();
+    assertThat(session.clientType).isEqualTo(WhatsAppClientType.CONSUMER);
+    assertThat(session.timestampMillis).isEqualTo(now - 1);
+    assertThat(journal.getOpenSession(WhatsAppClientType.BUSINESS)).isNull();
+    assertThat(file.length()).isEqualTo(2 * WhatsAppOtpHandshakeJournal.RECORD_SIZE);
+  }
+
+  @Test
+  public void test_onHandshakeSentBeforeFlush_isReadFromMemoryAndCoalesced() {
+    // test
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now - 2);
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now - 1);
+    HandshakeSession pending = journal.getOpenSession(WhatsAppClientType.CONSUMER);
+    journal.flush();
+    // assertions
+    assertThat(pending).isNotNull();
+    assertThat(pending.timestampMillis).isEqualTo(now - 1);
+    assertThat(journal.getOpenSession(WhatsAppClientType.CONSUMER).sessionId)
+        .isEqualTo(pending.sessionId);
+    assertThat(file.length()).isEqualTo(WhatsAppOtpHandshakeJournal.RECORD_SIZE);
+  }
+
+  @Test
+  public void test_getOpenSessions_returnsSessionOfEveryClient() {
+    // setup
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now - 1);
+    journal.flush();
+    journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now);
+    // test
+    HandshakeSession[] sessions = journal.getOpenSessions();
+    // assertions
+    assertThat(sessions[WhatsAppClientType.CONSUMER.ordinal()].timestampMillis)
+        .isEqualTo(now - 1);
+    assertThat(sessions[WhatsAppClientType.BUSINESS.ordinal()].timestampMillis).isEqualTo(now);
+  }
+
+  @Test
+  public void test_completeSession_completesOnce() {
+    // setup
+    journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now);
+    // test
+    HandshakeSession first = journal.completeSession(WhatsAppClientType.BUSINESS, now + 1);
+    HandshakeSession second = journal.completeSession(WhatsAppClientType.BUSINESS, now + 2);
+    // assertions
+    assertThat(first).isNotNull();
+    assertThat(first.timestampMillis).isEqualTo(now);
+    assertThat(second).isNull();
+    assertThat(journal.getOpenSession(WhatsAppClientType.BUSINESS)).isNull();
+  }
+
+  @Test
+  public void test_completeSessionOfFullJournal_completesAfterCompaction() {
+    // setup
+    for (int i = 0; i < (WhatsAppOtpHandshakeJournal.MAX_RECORDS - 1) / 2; i++) {
+      journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now);
+      journal.completeSession(WhatsAppClientType.BUSINESS, now);
+    }
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now);
+    journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now + 1);
+    // test
+    HandshakeSession completed = journal.completeSession(WhatsAppClientType.CONSUMER, now + 2);
+    // assertions
+    assertThat(completed).isNotNull();
+    assertThat(completed.timestampMillis).isEqualTo(now);
+    assertThat(journal.getOpenSession(WhatsAppClientType.CONSUMER)).isNull();
+    assertThat(journal.getOpenSession(WhatsAppClientType.BUSINESS).timestampMillis)
+        .isEqualTo(now + 1);
+    assertThat(file.length()).isLessThanOrEqualTo(2 * WhatsAppOtpHandshakeJournal.RECORD_SIZE);
+  }
+
+  @Test
+  public void test_expiredSession_isIgnored() {
+    // setup
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER,
+        now - TimeUnit.MINUTES.toMillis(WhatsAppOtpHandshakeJournal.SESSION_EXPIRATION_MINUTES));
+    // assertions
+    assertThat(journal.getOpenSession(WhatsAppClientType.CONSUMER)).isNull();
+  }
+
+  @Test
+  public void test_tornRecord_isIgnoredAndOverwritten() throws IOException {
+    // setup
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now);
+    journal.flush();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(WhatsAppOtpHandshakeJournal.RECORD_SIZE + 5);
+    }
+    // test
+    HandshakeSession beforeAppend = journal.getOpenSession(WhatsAppClientType.CONSUMER);
+    journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now + 1);
+    journal.flush();
+    // assertions
+    assertThat(beforeAppend).isNotNull();
+    assertThat(beforeAppend.timestampMillis).isEqualTo(now);
+    assertThat(journal.getOpenSession(WhatsAppClientType.BUSINESS)).isNotNull();
+    assertThat(file.length()).isEqualTo(2 * WhatsAppOtpHandshakeJournal.RECORD_SIZE);
+  }
+
+  @Test
+  public void test_fullJournal_isReplacedByCompactedJournal() {
+    // setup
+    for (int i = 0; i < WhatsAppOtpHandshakeJournal.MAX_RECORDS / 2; i++) {
+      journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now);
+      journal.completeSession(WhatsAppClientType.BUSINESS, now);
+    }
+    journal.onHandshakeSent(WhatsAppClientType.CONSUMER, now);
+    // test
+    journal.onHandshakeSent(WhatsAppClientType.BUSINESS, now + 1);
+    journal.flush();
+    // assertions
+    assertThat(file.length()).isEqualTo(2 * WhatsAppOtpHandshakeJournal.RECORD_SIZE);
+    assertThat(temporaryFolder.getRoot().list()).containsExactlyInAnyOrder("journal",
+        "journal.lock");
+    assertThat(journal.getOpenSession(WhatsAppClientType.CONSUMER).timestampMillis)
+        .isEqualTo(now);
+    assertThat(journal.getOpenSession(WhatsAppClientType.BUSINESS).timestampMillis)
+        .isEqualTo(now + 1);
+  }
+}
\ No newline at end of file
@@ -8,25 +8,49 @@ package com.whatsapp.otp.android.sdk;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
 
 import android.app.PendingIntent;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.Signature;
+import androidx.test.core.app.ApplicationProvider;
+import com.sun.management.ThreadMXBean;
 import com.whatsapp.otp.android.sdk.data.DebugSignal;
+import com.whatsapp.otp.android.sdk.data.WhatsAppOtpIncomingResult;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppOtpError;
 import com.whatsapp.otp.android.sdk.exceptions.InvalidWhatsAppOtpIntentException;
+import com.whatsapp.otp.android.sdk.exceptions.WhatsAppOtpErrorException;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
 
+@RunWith(RobolectricTestRunner.class)
 public class WhatsAppOtpIncomingIntentHandlerTest {
 
   private static final String CODE = "567567";
@@ -34,6 +58,7 @@ public class WhatsAppOtpIncomingIntentHandlerTest {
   private static final String CALLER_INFO = "_ci_";
   private static final String OTP_ERROR_IDENTIFIER_KEY = "error";
   private static final String OTP_ERROR_MESSAGE_KEY = "error_message";
+  private static final String BETA_PACKAGE = "com.whatsapp.beta";
 
   private Intent mockedIntent = Mockito.mock(Intent.class);
   private PendingIntent mockedPendingIntent = Mockito.mock(PendingIntent.class);
@@ -233,6 +258,505 @@ public class WhatsAppOtpIncomingIntentHandlerTest {
     assertThat(isIntentFromWhatsApp).isFalse();
   }
 
+  @Test
+  public void test_parse_extractsEverythingWithSingleLookup() {
+    // setup
+    Intent whatsAppIntent = mockWhatsAppIntentWithOtpError();
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    // test
+    WhatsAppOtpIncomingResult result = incomingIntentHandler.parse(whatsAppIntent);
+    // assertions
+    assertThat(result.clientType).isEqualTo(WhatsAppClientType.BUSINESS);
+    assertThat(result.hasCode()).isTrue();
+    assertThat(result.code).isEqualTo(CODE);
+    assertThat(result.debugSignal.otpErrorIdentifier).isEqualTo("key");
+    assertThat(result.debugSignal.otpErrorMessage).isEqualTo("message");
+    verify(mockedIntent, times(1)).getParcelableExtra(eq(CALLER_INFO));
+    verify(mockedPendingIntent, times(1)).getCreatorPackage();
+  }
+
+  @Test
+  public void test_parse_failsIntentNotFromWhatsApp() {
+    // setup
+    mockIntentWithPendingIntentFromPackage("com.not.from.wa");
+    // test
+    Assertions.assertThatExceptionOfType(InvalidWhatsAppOtpIntentException.class)
+        .isThrownBy(() -> incomingIntentHandler.parse(mockedIntent));
+  }
+
+  @Test
+  public void test_parse_failsWithoutPendingIntent() {
+    // test
+    Assertions.assertThatExceptionOfType(InvalidWhatsAppOtpIntentException.class)
+        .isThrownBy(() -> incomingIntentHandler.parse(mockedIntent));
+  }
+
+  @Test
+  public void test_getOriginClientType_returnsCreatorClient() {
+    // setup
+    doReturn("com.whatsapp.w4b").when(mockedPendingIntent).getCreatorPackage();
+    // test
+    WhatsAppClientType clientType = incomingIntentHandler.getOriginClientType(mockedPendingIntent);
+    // assertions
+    assertThat(clientType).isEqualTo(WhatsAppClientType.BUSINESS);
+    assertThat(incomingIntentHandler.isPendingIntentFromWhatsApp(mockedPendingIntent)).isTrue();
+  }
+
+  @Test
+  public void test_getOriginClientTypeNotFromWhatsApp_returnsNull() {
+    // setup
+    doReturn("com.not.from.wa").when(mockedPendingIntent).getCreatorPackage();
+    // test
+    WhatsAppClientType clientType = incomingIntentHandler.getOriginClientType(mockedPendingIntent);
+    // assertions
+    assertThat(clientType).isNull();
+    assertThat(incomingIntentHandler.isPendingIntentFromWhatsApp(mockedPendingIntent)).isFalse();
+  }
+
+  @Test
+  public void test_isPendingIntentFromWhatsApp_doesNotAllocate() {
+    // setup
+    ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported()
+        && threadMXBean.isThreadAllocatedMemoryEnabled());
+    long threadId = Thread.currentThread().getId();
+    Context context = ApplicationProvider.getApplicationContext();
+    String[] creatorPackages = {"com.whatsapp", "com.whatsapp.w4b", "com.not.from.wa"};
+    PendingIntent[] pendingIntents = new PendingIntent[creatorPackages.length];
+    for (int i = 0; i < creatorPackages.length; i++) {
+      pendingIntents[i] = PendingIntent.getActivity(context, i, new Intent(),
+          PendingIntent.FLAG_IMMUTABLE);
+      shadowOf(pendingIntents[i]).setCreatorPackage(creatorPackages[i]);
+    }
+    // the unknown package is looked up among the accepted variants
+    incomingIntentHandler.acceptVariant(context, BETA_PACKAGE, new byte[32]);
+    int iterations = 10_000;
+    // warm up so class loading and lazy initialization are not measured
+    countCreatorPackages(pendingIntents, iterations);
+    countPendingIntentsFromWhatsApp(pendingIntents, iterations);
+
+    // test
+    long start = threadMXBean.getThreadAllocatedBytes(threadId);
+    int creatorPackageCount = countCreatorPackages(pendingIntents, iterations);
+    long creatorLookupEnd = threadMXBean.getThreadAllocatedBytes(threadId);
+    int matches = countPendingIntentsFromWhatsApp(pendingIntents, iterations);
+    long end = threadMXBean.getThreadAllocatedBytes(threadId);
+
+    // assertions
+    assertThat(creatorPackageCount).isEqualTo(3 * iterations);
+    assertThat(matches).isEqualTo(2 * iterations);
+    // the shadow allocates when looking up the creator package, only the rest is checked
+    long creatorLookupBytes = creatorLookupEnd - start;
+    long handlerBytes = end - creatorLookupEnd;
+    assertThat((handlerBytes - creatorLookupBytes) / iterations).isLessThanOrEqualTo(0);
+  }
+
+  @Test
+  public void test_processOtpCodeWithMetrics_reportsVerificationAndError() {
+    // setup
+    WhatsAppOtpMetrics mockedMetrics = Mockito.mock(WhatsAppOtpMetrics.class);
+    incomingIntentHandler.setMetrics(mockedMetrics);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    verify(mockedMetrics).onIncomingIntentVerified(eq(WhatsAppClientType.CONSUMER), anyLong());
+    verify(mockedMetrics).onError(WhatsAppOtpError.OTP_CODE_NOT_RECEIVED);
+    verify(mockedErrorConsumer).accept(eq(WhatsAppOtpError.OTP_CODE_NOT_RECEIVED), isNull());
+  }
+
+  @Test
+  public void test_isIntentFromWhatsAppWithMetrics_reportsUnknownOrigin() {
+    // setup
+    WhatsAppOtpMetrics mockedMetrics = Mockito.mock(WhatsAppOtpMetrics.class);
+    incomingIntentHandler.setMetrics(mockedMetrics);
+    mockIntentWithPendingIntentFromPackage("com.not.from.wa");
+
+    // test
+    boolean isFromWhatsApp = incomingIntentHandler.isIntentFromWhatsApp(mockedIntent,
+        WhatsAppClientType.BUSINESS);
+
+    // assertions
+    assertThat(isFromWhatsApp).isFalse();
+    verify(mockedMetrics).onIncomingIntentVerified(isNull(), anyLong());
+  }
+
+  @Test
+  public void test_processOtpCodeAfterHandshake_recordsLatency() {
+    // setup
+    WhatsAppOtpLatencyTracker latencyTracker = WhatsAppOtpLatencyTracker.getInstance();
+    latencyTracker.reset();
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.BUSINESS.getPackageName());
+    latencyTracker.onHandshakeSent(WhatsAppClientType.BUSINESS, System.nanoTime());
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    verify(mockedCodeConsumer, times(2)).accept(eq(CODE));
+    assertThat(latencyTracker.getSnapshot(WhatsAppClientType.BUSINESS).count).isEqualTo(1);
+    assertThat(latencyTracker.getSnapshot(WhatsAppClientType.CONSUMER).count).isZero();
+    assertThat(latencyTracker.getSnapshot().count).isEqualTo(1);
+    latencyTracker.reset();
+  }
+
+  @Test
+  public void test_processOtpCodeFromSecondClientOfHandshake_recordsNoLatency() {
+    // setup
+    WhatsAppOtpLatencyTracker latencyTracker = WhatsAppOtpLatencyTracker.getInstance();
+    latencyTracker.reset();
+    long handshakeStart = System.nanoTime();
+    latencyTracker.onHandshakeSent(WhatsAppClientType.CONSUMER, handshakeStart);
+    latencyTracker.onHandshakeSent(WhatsAppClientType.BUSINESS, handshakeStart);
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+    Intent lateIntent = Mockito.mock(Intent.class);
+    PendingIntent latePendingIntent = Mockito.mock(PendingIntent.class);
+    doReturn(CODE).when(lateIntent).getStringExtra(CODE_KEY);
+    doReturn(latePendingIntent).when(lateIntent).getParcelableExtra(eq(CALLER_INFO));
+    doReturn(WhatsAppClientType.BUSINESS.getPackageName()).when(latePendingIntent)
+        .getCreatorPackage();
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(lateIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    verify(mockedCodeConsumer, times(2)).accept(eq(CODE));
+    assertThat(latencyTracker.getSnapshot(WhatsAppClientType.CONSUMER).count).isEqualTo(1);
+    assertThat(latencyTracker.getSnapshot(WhatsAppClientType.BUSINESS).count).isZero();
+    latencyTracker.reset();
+  }
+
+  @Test
+  public void test_awaitOtpCode_completesWithProcessedCode() {
+    // setup
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+    CompletableFuture<String> future = incomingIntentHandler.awaitOtpCode(1, TimeUnit.MINUTES);
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    assertThat(future).isCompletedWithValue(CODE);
+    assertThat(OtpCodeWaiters.size()).isZero();
+  }
+
+  @Test
+  public void test_awaitOtpCodeIntentNotFromWhatsApp_keepsWaiting() {
+    // setup
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage("com.not.from.wa");
+    CompletableFuture<String> future = incomingIntentHandler.awaitOtpCode(1, TimeUnit.MINUTES);
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    assertThat(future).isNotDone();
+    future.cancel(false);
+    assertThat(OtpCodeWaiters.size()).isZero();
+  }
+
+  @Test
+  public void test_awaitOtpCodeMissingCode_completesWithError() {
+    // setup
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+    CompletableFuture<String> future = incomingIntentHandler.awaitOtpCode(1, TimeUnit.MINUTES);
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    Assertions.assertThatThrownBy(future::join)
+        .hasCauseInstanceOf(WhatsAppOtpErrorException.class);
+    assertThat(OtpCodeWaiters.size()).isZero();
+  }
+
+  @Test
+  public void test_awaitOtpCodeWithoutCode_timesOut() {
+    // test
+    CompletableFuture<String> future = incomingIntentHandler.awaitOtpCode(10,
+        TimeUnit.MILLISECONDS);
+
+    // assertions
+    Assertions.assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(TimeoutException.class);
+    assertThat(OtpCodeWaiters.size()).isZero();
+  }
+
+  @Test
+  public void test_processOtpCodeWithDeduplicator_dropsDuplicateDelivery() {
+    // setup
+    WhatsAppOtpCodeDeduplicator deduplicator = new WhatsAppOtpCodeDeduplicator(8, 1,
+        TimeUnit.MINUTES);
+    incomingIntentHandler.setCodeDeduplicator(deduplicator);
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    doReturn("123123").when(mockedIntent).getStringExtra(CODE_KEY);
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    verify(mockedCodeConsumer, times(1)).accept(eq(CODE));
+    verify(mockedCodeConsumer, times(1)).accept(eq("123123"));
+    verify(mockedErrorConsumer, never()).accept(any(), any());
+    assertThat(deduplicator.getSuppressedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void test_processOtpCodeAndDebugSignalsWithEventHub_publishesIntentOnce() {
+    // setup
+    WhatsAppOtpEventHub eventHub = new WhatsAppOtpEventHub(Runnable::run, 4);
+    Flow.Subscriber<WhatsAppOtpIncomingResult> subscriber = Mockito.mock(Flow.Subscriber.class);
+    doAnswer(invocation -> {
+      invocation.<Flow.Subscription>getArgument(0).request(Long.MAX_VALUE);
+      return null;
+    }).when(subscriber).onSubscribe(any());
+    eventHub.subscribe(subscriber);
+    incomingIntentHandler.setEventHub(eventHub);
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpDebugSignals(mockedIntent, mockedDebugCodeConsumer,
+        mockedErrorConsumer);
+
+    // assertions
+    ArgumentCaptor<WhatsAppOtpIncomingResult> captor = ArgumentCaptor.forClass(
+        WhatsAppOtpIncomingResult.class);
+    verify(subscriber, times(1)).onNext(captor.capture());
+    assertThat(captor.getValue().clientType).isEqualTo(WhatsAppClientType.CONSUMER);
+    assertThat(captor.getValue().code).isEqualTo(CODE);
+    verify(mockedCodeConsumer).accept(eq(CODE));
+    verify(mockedDebugCodeConsumer).accept(any());
+  }
+
+  @Test
+  public void test_processDuplicateCodeWithEventHubAndDeduplicator_publishesCodeOnce() {
+    // setup
+    WhatsAppOtpEventHub eventHub = new WhatsAppOtpEventHub(Runnable::run, 4);
+    Flow.Subscriber<WhatsAppOtpIncomingResult> subscriber = Mockito.mock(Flow.Subscriber.class);
+    doAnswer(invocation -> {
+      invocation.<Flow.Subscription>getArgument(0).request(Long.MAX_VALUE);
+      return null;
+    }).when(subscriber).onSubscribe(any());
+    eventHub.subscribe(subscriber);
+    incomingIntentHandler.setEventHub(eventHub);
+    incomingIntentHandler.setCodeDeduplicator(new WhatsAppOtpCodeDeduplicator(8, 1,
+        TimeUnit.MINUTES));
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+    Intent duplicateIntent = Mockito.mock(Intent.class);
+    doReturn(CODE).when(duplicateIntent).getStringExtra(CODE_KEY);
+    doReturn(mockedPendingIntent).when(duplicateIntent).getParcelableExtra(eq(CALLER_INFO));
+    Intent otherDuplicateIntent = Mockito.mock(Intent.class);
+    doReturn(CODE).when(otherDuplicateIntent).getStringExtra(CODE_KEY);
+    doReturn(mockedPendingIntent).when(otherDuplicateIntent).getParcelableExtra(eq(CALLER_INFO));
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(duplicateIntent, mockedCodeConsumer,
+        mockedErrorConsumer);
+    incomingIntentHandler.processOtpDebugSignals(duplicateIntent, mockedDebugCodeConsumer,
+        mockedErrorConsumer);
+    incomingIntentHandler.processOtpDebugSignals(otherDuplicateIntent, mockedDebugCodeConsumer,
+        mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(otherDuplicateIntent, mockedCodeConsumer,
+        mockedErrorConsumer);
+
+    // assertions
+    verify(subscriber, times(1)).onNext(any());
+    verify(mockedCodeConsumer, times(1)).accept(eq(CODE));
+    verify(mockedDebugCodeConsumer, times(2)).accept(any());
+    verify(mockedErrorConsumer, never()).accept(any(), any());
+  }
+
+  @Test
+  public void test_codeDeduplicator_forgetsExpiredAndEvictedDeliveries() {
+    // setup
+    WhatsAppOtpCodeDeduplicator deduplicator = new WhatsAppOtpCodeDeduplicator(2, 1,
+        TimeUnit.SECONDS);
+    long now = System.nanoTime();
+    long oneSecond = TimeUnit.SECONDS.toNanos(1);
+
+    // test
+    boolean first = deduplicator.isDuplicate(CODE, mockedPendingIntent, now);
+    deduplicator.recordDelivery(CODE, mockedPendingIntent, now);
+    boolean duplicate = deduplicator.isDuplicate(CODE, mockedPendingIntent, now + 1);
+    boolean expired = deduplicator.isDuplicate(CODE, mockedPendingIntent, now + oneSecond);
+    deduplicator.recordDelivery(CODE, mockedPendingIntent, now + oneSecond);
+    boolean otherCallerInfo = deduplicator.isDuplicate(CODE, null, now + oneSecond);
+    deduplicator.recordDelivery(CODE, null, now + oneSecond);
+    deduplicator.recordDelivery("111111", mockedPendingIntent, now + oneSecond);
+    boolean evicted = deduplicator.isDuplicate(CODE, mockedPendingIntent, now + oneSecond);
+
+    // assertions
+    assertThat(first).isFalse();
+    assertThat(duplicate).isTrue();
+    assertThat(expired).isFalse();
+    assertThat(otherCallerInfo).isFalse();
+    assertThat(evicted).isFalse();
+    assertThat(deduplicator.getSuppressedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void test_processOtpCodeWithDeduplicator_redeliversCodeAfterCallbackFailure() {
+    // setup
+    WhatsAppOtpCodeDeduplicator deduplicator = new WhatsAppOtpCodeDeduplicator(8, 1,
+        TimeUnit.MINUTES);
+    incomingIntentHandler.setCodeDeduplicator(deduplicator);
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+    doThrow(new IllegalStateException()).doNothing().when(mockedCodeConsumer).accept(CODE);
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    verify(mockedCodeConsumer, times(2)).accept(eq(CODE));
+    verify(mockedErrorConsumer, times(1)).accept(any(), any());
+    verify(mockedIntent, times(3)).getParcelableExtra(CALLER_INFO);
+    assertThat(deduplicator.getSuppressedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void test_isIntentFromWhatsAppWithPreFilter_rejectsWithoutReadingCallerInfo() {
+    // setup
+    incomingIntentHandler.setIntentPreFilter(true);
+    doReturn(true).when(mockedIntent).hasExtra(CALLER_INFO);
+
+    // test
+    boolean intentIsFromWhatsApp = incomingIntentHandler.isIntentFromWhatsApp(mockedIntent);
+
+    // assertions
+    assertThat(intentIsFromWhatsApp).isFalse();
+    verify(mockedIntent, never()).getParcelableExtra(any());
+  }
+
+  @Test
+  public void test_processOtpCodeWithPreFilter_verifiesCandidateIntent() {
+    // setup
+    incomingIntentHandler.setIntentPreFilter(true);
+    doReturn(true).when(mockedIntent).hasExtra(CALLER_INFO);
+    doReturn(true).when(mockedIntent).hasExtra(CODE_KEY);
+    doReturn(CODE).when(mockedIntent).getStringExtra(CODE_KEY);
+    mockIntentWithPendingIntentFromPackage(WhatsAppClientType.CONSUMER.getPackageName());
+
+    // test
+    incomingIntentHandler.processOtpCode(mockedIntent, mockedCodeConsumer, mockedErrorConsumer);
+
+    // assertions
+    verify(mockedCodeConsumer).accept(eq(CODE));
+    verify(mockedErrorConsumer, never()).accept(any(), any());
+  }
+
+  @Test
+  public void test_mayBeFromWhatsApp_requiresCallerInfoAndCodeOrError() {
+    // setup
+    Intent debugSignalIntent = Mockito.mock(Intent.class);
+    doReturn(true).when(debugSignalIntent).hasExtra(CALLER_INFO);
+    doReturn(true).when(debugSignalIntent).hasExtra(OTP_ERROR_IDENTIFIER_KEY);
+    Intent codeWithoutCallerInfo = Mockito.mock(Intent.class);
+    doReturn(true).when(codeWithoutCallerInfo).hasExtra(CODE_KEY);
+
+    // assertions
+    assertThat(incomingIntentHandler.mayBeFromWhatsApp(debugSignalIntent)).isTrue();
+    assertThat(incomingIntentHandler.mayBeFromWhatsApp(codeWithoutCallerInfo)).isFalse();
+    assertThat(incomingIntentHandler.mayBeFromWhatsApp(mockedIntent)).isFalse();
+  }
+
+  @Test
+  public void test_isIntentFromWhatsAppRegisteredVariant_isNotAccepted() {
+    // setup
+    mockIntentWithPendingIntentFromPackage(BETA_PACKAGE);
+    WhatsAppClientRegistry.registerPackage(BETA_PACKAGE, WhatsAppClientType.CONSUMER);
+
+    // test
+    final boolean fromWhatsApp;
+    try {
+      fromWhatsApp = incomingIntentHandler.isIntentFromWhatsApp(mockedIntent);
+    } finally {
+      WhatsAppClientRegistry.unregisterPackage(BETA_PACKAGE);
+    }
+
+    // assertions
+    assertThat(fromWhatsApp).isFalse();
+  }
+
+  @Test
+  public void test_isIntentFromWhatsAppAcceptedVariant_checksSigningCertificate()
+      throws Exception {
+    // setup
+    mockIntentWithPendingIntentFromPackage(BETA_PACKAGE);
+    byte[] certificate = new byte[]{1, 2, 3};
+    byte[] certificateSha256 = MessageDigest.getInstance("SHA-256").digest(certificate);
+    Context mockedContext = Mockito.mock(Context.class);
+    PackageManager mockedPackageManager = Mockito.mock(PackageManager.class);
+    doReturn(mockedPackageManager).when(mockedContext).getPackageManager();
+    Signature mockedSignature = Mockito.mock(Signature.class);
+    doReturn(certificate).when(mockedSignature).toByteArray();
+    PackageInfo mockedPackageInfo = Mockito.mock(PackageInfo.class);
+    mockedPackageInfo.signatures = new Signature[]{mockedSignature};
+    doReturn(mockedPackageInfo).when(mockedPackageManager).getPackageInfo(eq(BETA_PACKAGE),
+        anyInt());
+    doReturn(true).when(mockedPackageManager)
+        .hasSigningCertificate(eq(BETA_PACKAGE), eq(certificateSha256), anyInt());
+    WhatsAppClientRegistry.registerPackage(BETA_PACKAGE, WhatsAppClientType.CONSUMER);
+
+    // test
+    final boolean acceptedWithCertificate;
+    final boolean acceptedWithOtherCertificate;
+    try {
+      incomingIntentHandler.acceptVariant(mockedContext, BETA_PACKAGE, certificateSha256);
+      acceptedWithCertificate = incomingIntentHandler.isIntentFromWhatsApp(mockedIntent,
+          WhatsAppClientType.CONSUMER);
+      incomingIntentHandler.acceptVariant(mockedContext, BETA_PACKAGE, new byte[32]);
+      acceptedWithOtherCertificate = incomingIntentHandler.isIntentFromWhatsApp(mockedIntent);
+    } finally {
+      WhatsAppClientRegistry.unregisterPackage(BETA_PACKAGE);
+    }
+
+    // assertions
+    assertThat(acceptedWithCertificate).isTrue();
+    assertThat(acceptedWithOtherCertificate).isFalse();
+  }
+
+  private static int countCreatorPackages(PendingIntent[] pendingIntents, int iterations) {
+    int count = 0;
+    for (int i = 0; i < iterations; i++) {
+      for (PendingIntent pendingIntent : pendingIntents) {
+        if (pendingIntent.getCreatorPackage() != null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private int countPendingIntentsFromWhatsApp(PendingIntent[] pendingIntents, int iterations) {
+    int matches = 0;
+    for (int i = 0; i < iterations; i++) {
+      for (PendingIntent pendingIntent : pendingIntents) {
+        if (incomingIntentHandler.isPendingIntentFromWhatsApp(pendingIntent)) {
+          matches++;
+        }
+      }
+    }
+    return matches;
+  }
+
   private void mockIntentWithPendingIntentFromPackage(String packageSource) {
     doReturn(mockedPendingIntent).when(mockedIntent).getParcelableExtra(eq(CALLER_INFO));
     doReturn(packageSource).when(mockedPendingIntent)
@@ -7,15 +7,38 @@
 package com.whatsapp.otp.android.sdk;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.util.Log;
 import androidx.test.core.app.ApplicationProvider;
 import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
@@ -78,4 +101,161 @@ public class WhatsAppOtpIntentBuilderTest {
       new WhatsAppOtpIntentBuilder().create(null, WhatsAppClientType.CONSUMER);
     });
   }
+
+  @Test
+  public void test_create_isNotSynchronized() throws NoSuchMethodException {
+    Method create = WhatsAppOtpIntentBuilder.class.getMethod("create", Context.class,
+        WhatsAppClientType.class);
+    assertThat(Modifier.isSynchronized(create.getModifiers())).isFalse();
+  }
+
+  @Test
+  public void test_createConcurrentlyWhileMonitorIsHeld_succeeds() throws Exception {
+    final WhatsAppOtpIntentBuilder whatsAppOtpIntent = new WhatsAppOtpIntentBuilder();
+    final int threads = 8;
+    final int intentsPerThread = 50;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<List<Intent>>> futures = new ArrayList<>();
+    try {
+      // holding the builder monitor makes any synchronized section block until the timeout
+      synchronized (whatsAppOtpIntent) {
+        for (int i = 0; i < threads; i++) {
+          final WhatsAppClientType type = WhatsAppClientType.values()[
+              i % WhatsAppClientType.values().length];
+          futures.add(executor.submit(() -> {
+            start.await();
+            List<Intent> intents = new ArrayList<>();
+            for (int j = 0; j < intentsPerThread; j++) {
+              intents.add(whatsAppOtpIntent.create(context, type));
+            }
+            return intents;
+          }));
+        }
+        start.countDown();
+        for (Future<List<Intent>> future : futures) {
+          for (Intent intent : future.get(30, TimeUnit.SECONDS)) {
+            assertThat(intent.getAction()).isEqualTo("com.whatsapp.otp.OTP_REQUESTED");
+            PendingIntent pendingIntent = intent.getParcelableExtra("_ci_");
+            assertThat(pendingIntent).isNotNull();
+            assertThat(intent.getStringExtra("SDK_VERSION")).isEqualTo("0.1.0_not_from_manifest");
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void test_createTwiceForSameType_reusesPendingIntent() {
+    CountingWhatsAppOtpIntentBuilder whatsAppOtpIntent = new CountingWhatsAppOtpIntentBuilder(
+        WhatsAppOtpIntentBuilder.DEFAULT_PENDING_INTENT_TTL_MILLIS);
+    Intent first = whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    Intent second = whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    assertThat(second).isNotSameAs(first);
+    PendingIntent firstPendingIntent = first.getParcelableExtra("_ci_");
+    PendingIntent secondPendingIntent = second.getParcelableExtra("_ci_");
+    assertThat(secondPendingIntent).isSameAs(firstPendingIntent);
+    assertThat(second.getPackage()).isEqualTo("com.whatsapp");
+    assertThat(second.getStringExtra("SDK_VERSION")).isEqualTo("0.1.0_not_from_manifest");
+    assertThat(whatsAppOtpIntent.pendingIntentsCreated).isEqualTo(1);
+  }
+
+  @Test
+  public void test_createForEachType_createsPendingIntentPerType() {
+    CountingWhatsAppOtpIntentBuilder whatsAppOtpIntent = new CountingWhatsAppOtpIntentBuilder(
+        WhatsAppOtpIntentBuilder.DEFAULT_PENDING_INTENT_TTL_MILLIS);
+    whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    whatsAppOtpIntent.create(context, WhatsAppClientType.BUSINESS);
+    whatsAppOtpIntent.create(context, WhatsAppClientType.BUSINESS);
+    assertThat(whatsAppOtpIntent.pendingIntentsCreated).isEqualTo(2);
+  }
+
+  @Test
+  public void test_createAfterInvalidate_createsNewPendingIntent() {
+    CountingWhatsAppOtpIntentBuilder whatsAppOtpIntent = new CountingWhatsAppOtpIntentBuilder(
+        WhatsAppOtpIntentBuilder.DEFAULT_PENDING_INTENT_TTL_MILLIS);
+    whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    whatsAppOtpIntent.invalidatePendingIntents();
+    whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    assertThat(whatsAppOtpIntent.pendingIntentsCreated).isEqualTo(2);
+  }
+
+  @Test
+  public void test_createWithZeroTtl_createsPendingIntentEveryTime() {
+    CountingWhatsAppOtpIntentBuilder whatsAppOtpIntent = new CountingWhatsAppOtpIntentBuilder(0);
+    whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    whatsAppOtpIntent.create(context, WhatsAppClientType.CONSUMER);
+    assertThat(whatsAppOtpIntent.pendingIntentsCreated).isEqualTo(2);
+  }
+
+  @Test
+  public void test_createWithNegativeTtl_failsWithIllegalArgumentException() {
+    Assertions.assertThatIllegalArgumentException().isThrownBy(() -> {
+      new WhatsAppOtpIntentBuilder(true, -1);
+    });
+  }
+
+  @Test
+  public void test_createWithDiagnosticsDisabled_skipsPackageLookups() {
+    Context mockedContext = Mockito.mock(Context.class);
+    WhatsAppOtpDiagnostics previousDiagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+    WhatsAppOtpDiagnostics.setDiagnostics(WhatsAppOtpDiagnostics.DISABLED);
+    try {
+      new MockedPendingIntentWhatsAppOtpIntentBuilder().create(mockedContext,
+          WhatsAppClientType.CONSUMER);
+    } finally {
+      WhatsAppOtpDiagnostics.setDiagnostics(previousDiagnostics);
+    }
+    verify(mockedContext, never()).getPackageManager();
+  }
+
+  @Test
+  public void test_createWithDiagnosticsEnabled_logsPackageLookups()
+      throws NameNotFoundException {
+    Context mockedContext = Mockito.mock(Context.class);
+    PackageManager mockedPackageManager = Mockito.mock(PackageManager.class);
+    doReturn(mockedPackageManager).when(mockedContext).getPackageManager();
+    doThrow(new NameNotFoundException()).when(mockedPackageManager)
+        .getPackageInfo(anyString(), anyInt());
+    WhatsAppOtpDiagnostics mockedDiagnostics = Mockito.mock(WhatsAppOtpDiagnostics.class);
+    doReturn(true).when(mockedDiagnostics).isLoggable(anyInt());
+    WhatsAppOtpDiagnostics previousDiagnostics = WhatsAppOtpDiagnostics.getDiagnostics();
+    WhatsAppOtpDiagnostics.setDiagnostics(mockedDiagnostics);
+    try {
+      new MockedPendingIntentWhatsAppOtpIntentBuilder().create(mockedContext,
+          WhatsAppClientType.BUSINESS);
+    } finally {
+      WhatsAppOtpDiagnostics.setDiagnostics(previousDiagnostics);
+    }
+    ArgumentCaptor<Supplier<String>> messageCaptor = ArgumentCaptor.forClass(Supplier.class);
+    verify(mockedDiagnostics).log(eq(Log.INFO), anyString(), messageCaptor.capture(),
+        any(NameNotFoundException.class));
+    assertThat(messageCaptor.getValue().get()).contains("com.whatsapp.w4b");
+  }
+
+  private static class MockedPendingIntentWhatsAppOtpIntentBuilder extends
+      WhatsAppOtpIntentBuilder {
+
+    @Override
+    protected PendingIntent createPendingIntent(Context context, Intent intent) {
+      return Mockito.mock(PendingIntent.class);
+    }
+  }
+
+  private static class CountingWhatsAppOtpIntentBuilder extends WhatsAppOtpIntentBuilder {
+
+    private int pendingIntentsCreated;
+
+    private CountingWhatsAppOtpIntentBuilder(long pendingIntentTtlMillis) {
+      super(true, pendingIntentTtlMillis);
+    }
+
+    @Override
+    protected PendingIntent createPendingIntent(Context context, Intent intent) {
+      pendingIntentsCreated++;
+      return super.createPendingIntent(context, intent);
+    }
+  }
 }
\ No newline at end of file
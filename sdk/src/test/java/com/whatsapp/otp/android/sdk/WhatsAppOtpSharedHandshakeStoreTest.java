@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) Meta Platforms, Inc. and affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.whatsapp.otp.android.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.whatsapp.otp.android.sdk.enums.WhatsAppClientType;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WhatsAppOtpSharedHandshakeStoreTest {
+
+  private static final long NOW = 1_700_000_000_000L;
+
+  private static final long TTL = 30_000L;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+
+  private WhatsAppOtpSharedHandshakeStore store;
+
+  @Before
+  public void setup() throws IOException {
+    file = new File(temporaryFolder.getRoot(), "handshakes");
+    store = WhatsAppOtpSharedHandshakeStore.open(file);
+  }
+
+  @Test
+  public void test_open_sameFile_returnsSameStore() throws IOException {
+    // test
+    WhatsAppOtpSharedHandshakeStore other = WhatsAppOtpSharedHandshakeStore.open(
+        new File(temporaryFolder.getRoot(), "./handshakes"));
+    // assertions
+    assertThat(other).isSameAs(store);
+    assertThat(file.length()).isGreaterThan(0);
+  }
+
+  @Test
+  public void test_newStore_hasNoHandshake() {
+    // assertions
+    for (WhatsAppClientType type : WhatsAppClientType.values()) {
+      assertThat(store.getLastHandshakeMillis(type))
+          .isEqualTo(WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP);
+      assertThat(store.getOutstandingSessionMillis(type))
+          .isEqualTo(WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP);
+    }
+  }
+
+  @Test
+  public void test_tryRecordHandshake_withinTtl_isRejected() {
+    // test
+    WhatsAppOtpSharedHandshakeStore.Slot first = store.tryRecordHandshake(
+        WhatsAppClientType.CONSUMER, NOW, TTL);
+    WhatsAppOtpSharedHandshakeStore.Slot second = store.tryRecordHandshake(
+        WhatsAppClientType.CONSUMER, NOW + TTL - 1, TTL);
+    WhatsAppOtpSharedHandshakeStore.Slot otherClient = store.tryRecordHandshake(
+        WhatsAppClientType.BUSINESS, NOW + 1, TTL);
+    // assertions
+    assertThat(first).isNotNull();
+    assertThat(first.handshakeMillis).isEqualTo(WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP);
+    assertThat(second).isNull();
+    assertThat(otherClient).isNotNull();
+    assertThat(store.getLastHandshakeMillis(WhatsAppClientType.CONSUMER)).isEqualTo(NOW);
+    assertThat(store.getOutstandingSessionMillis(WhatsAppClientType.CONSUMER)).isEqualTo(NOW);
+  }
+
+  @Test
+  public void test_tryRecordHandshake_afterTtl_isRecorded() {
+    // setup
+    store.tryRecordHandshake(WhatsAppClientType.CONSUMER, NOW, TTL);
+    // test
+    WhatsAppOtpSharedHandshakeStore.Slot previous = store.tryRecordHandshake(
+        WhatsAppClientType.CONSUMER, NOW + TTL, TTL);
+    // assertions
+    assertThat(previous).isNotNull();
+    assertThat(previous.handshakeMillis).isEqualTo(NOW);
+    assertThat(previous.sessionMillis).isEqualTo(NOW);
+    assertThat(store.getLastHandshakeMillis(WhatsAppClientType.CONSUMER)).isEqualTo(NOW + TTL);
+  }
+
+  @Test
+  public void test_tryRecordHandshake_afterClockWentBack_isRecorded() {
+    // setup
+    store.recordHandshake(WhatsAppClientType.CONSUMER, NOW);
+    // test
+    WhatsAppOtpSharedHandshakeStore.Slot previous = store.tryRecordHandshake(
+        WhatsAppClientType.CONSUMER, NOW - 1, TTL);
+    // assertions
+    assertThat(previous).isNotNull();
+  }
+
+  @Test
+  public void test_restoreHandshake_putsBackPreviousHandshakeAndSession() {
+    // setup
+    store.recordHandshake(WhatsAppClientType.CONSUMER, NOW);
+    WhatsAppOtpSharedHandshakeStore.Slot previous = store.recordHandshake(
+        WhatsAppClientType.CONSUMER, NOW + 1);
+    // test
+    store.restoreHandshake(WhatsAppClientType.CONSUMER, NOW + 1, previous);
+    // assertions
+    assertThat(store.getLastHandshakeMillis(WhatsAppClientType.CONSUMER)).isEqualTo(NOW);
+    assertThat(store.getOutstandingSessionMillis(WhatsAppClientType.CONSUMER)).isEqualTo(NOW);
+    assertThat(store.tryRecordHandshake(WhatsAppClientType.CONSUMER, NOW + 2, TTL)).isNull();
+  }
+
+  @Test
+  public void test_restoreHandshake_keepsLaterChanges() {
+    // setup
+    WhatsAppOtpSharedHandshakeStore.Slot previous = store.recordHandshake(
+        WhatsAppClientType.CONSUMER, NOW);
+    store.recordHandshake(WhatsAppClientType.CONSUMER, NOW + 1);
+    store.completeSession(WhatsAppClientType.CONSUMER);
+    // test
+    store.restoreHandshake(WhatsAppClientType.CONSUMER, NOW, previous);
+    // assertions
+    assertThat(store.getLastHandshakeMillis(WhatsAppClientType.CONSUMER)).isEqualTo(NOW + 1);
+    assertThat(store.getOutstandingSessionMillis(WhatsAppClientType.CONSUMER))
+        .isEqualTo(WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP);
+  }
+
+  @Test
+  public void test_completeSession_returnsSessionStartOnce() {
+    // setup
+    store.recordHandshake(WhatsAppClientType.BUSINESS, NOW);
+    // test
+    long first = store.completeSession(WhatsAppClientType.BUSINESS);
+    long second = store.completeSession(WhatsAppClientType.BUSINESS);
+    // assertions
+    assertThat(first).isEqualTo(NOW);
+    assertThat(second).isEqualTo(WhatsAppOtpSharedHandshakeStore.NO_TIMESTAMP);
+    assertThat(store.getLastHandshakeMillis(WhatsAppClientType.BUSINESS)).isEqualTo(NOW);
+  }
+}
\ No newline at end of file
@@ -6,8 +6,15 @@
  */
 package com.whatsapp.otp.android.sdk;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import android.content.BroadcastReceiver;
@@ -15,16 +22,36 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ComponentEnabledSetting;
+import android.os.Build;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
-import org.mockito.junit.MockitoJUnitRunner;
-
-@RunWith(MockitoJUnitRunner.class)
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+// Robolectric provides the platform classes and SDK levels the bulk component changes rely on
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
 public class WhatsAppOtpUtilsTest {
 
+  private static final String PACKAGE_NAME = "com.example.app";
+
+  @Rule
+  public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
   private final WhatsAppOtpUtils whatsAppOtpUtils = new WhatsAppOtpUtils();
 
   @Mock
@@ -33,9 +60,15 @@ public class WhatsAppOtpUtilsTest {
   @Mock
   private PackageManager packageManager;
 
+  private final Map<Class<?>, Integer> targetStates = new LinkedHashMap<>();
+
   @Before
   public void setup() {
     Mockito.doReturn(packageManager).when(context).getPackageManager();
+    Mockito.doReturn(PACKAGE_NAME).when(context).getPackageName();
+    targetStates.put(TestReceiver.class, PackageManager.COMPONENT_ENABLED_STATE_ENABLED);
+    targetStates.put(SecondReceiver.class, PackageManager.COMPONENT_ENABLED_STATE_ENABLED);
+    targetStates.put(ThirdReceiver.class, PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
   }
 
   @Test
@@ -64,6 +97,100 @@ public class WhatsAppOtpUtilsTest {
             eq(PackageManager.DONT_KILL_APP));
   }
 
+  @Test
+  @Config(sdk = Build.VERSION_CODES.TIRAMISU)
+  public void test_changeComponentStates_appliesChangesInSingleTransaction() {
+    // setup
+    doReturn(PackageManager.COMPONENT_ENABLED_STATE_ENABLED).when(packageManager)
+        .getComponentEnabledSetting(componentName(TestReceiver.class));
+
+    // test
+    Set<Class<?>> changedComponents = whatsAppOtpUtils.changeComponentStates(context,
+        targetStates);
+
+    // assertions
+    assertThat(changedComponents).containsExactly(SecondReceiver.class, ThirdReceiver.class);
+    ArgumentCaptor<List<ComponentEnabledSetting>> settingsCaptor = ArgumentCaptor.forClass(
+        List.class);
+    verify(packageManager).setComponentEnabledSettings(settingsCaptor.capture());
+    List<ComponentEnabledSetting> settings = settingsCaptor.getValue();
+    assertThat(settings).hasSize(2);
+    assertThat(settings.get(0).getComponentName()).isEqualTo(componentName(SecondReceiver.class));
+    assertThat(settings.get(0).getEnabledState())
+        .isEqualTo(PackageManager.COMPONENT_ENABLED_STATE_ENABLED);
+    assertThat(settings.get(1).getComponentName()).isEqualTo(componentName(ThirdReceiver.class));
+    assertThat(settings.get(1).getEnabledState())
+        .isEqualTo(PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+    verify(packageManager, never()).setComponentEnabledSetting(any(), anyInt(), anyInt());
+  }
+
+  @Test
+  @Config(sdk = Build.VERSION_CODES.S)
+  public void test_changeComponentStatesBeforeTiramisu_appliesChangesInOrder() {
+    // setup
+    doReturn(PackageManager.COMPONENT_ENABLED_STATE_ENABLED).when(packageManager)
+        .getComponentEnabledSetting(componentName(TestReceiver.class));
+
+    // test
+    Set<Class<?>> changedComponents = whatsAppOtpUtils.changeComponentStates(context,
+        targetStates);
+
+    // assertions
+    assertThat(changedComponents).containsExactly(SecondReceiver.class, ThirdReceiver.class);
+    InOrder inOrder = inOrder(packageManager);
+    inOrder.verify(packageManager).setComponentEnabledSetting(
+        componentName(SecondReceiver.class), PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
+        PackageManager.DONT_KILL_APP);
+    inOrder.verify(packageManager).setComponentEnabledSetting(
+        componentName(ThirdReceiver.class), PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
+        PackageManager.DONT_KILL_APP);
+    verify(packageManager, never()).setComponentEnabledSetting(
+        eq(componentName(TestReceiver.class)), anyInt(), anyInt());
+  }
+
+  @Test
+  public void test_changeComponentStatesAlreadyApplied_changesNothing() {
+    // setup
+    doReturn(PackageManager.COMPONENT_ENABLED_STATE_ENABLED).when(packageManager)
+        .getComponentEnabledSetting(componentName(TestReceiver.class));
+    doReturn(PackageManager.COMPONENT_ENABLED_STATE_ENABLED).when(packageManager)
+        .getComponentEnabledSetting(componentName(SecondReceiver.class));
+    doReturn(PackageManager.COMPONENT_ENABLED_STATE_DISABLED).when(packageManager)
+        .getComponentEnabledSetting(componentName(ThirdReceiver.class));
+
+    // test
+    Set<Class<?>> changedComponents = whatsAppOtpUtils.changeComponentStates(context,
+        targetStates);
+
+    // assertions
+    assertThat(changedComponents).isEmpty();
+    verify(packageManager, never()).setComponentEnabledSettings(anyList());
+    verify(packageManager, never()).setComponentEnabledSetting(any(), anyInt(), anyInt());
+  }
+
+  @Test
+  @Config(sdk = Build.VERSION_CODES.S)
+  public void test_changeComponentStatesWithKnownStates_skipsStateReads() {
+    // setup
+    Map<Class<?>, Integer> currentStates = Collections.singletonMap(TestReceiver.class,
+        PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+
+    // test
+    Set<Class<?>> changedComponents = whatsAppOtpUtils.changeComponentStates(context,
+        Collections.singletonMap(TestReceiver.class,
+            PackageManager.COMPONENT_ENABLED_STATE_ENABLED), currentStates);
+
+    // assertions
+    assertThat(changedComponents).containsExactly(TestReceiver.class);
+    verify(packageManager, never()).getComponentEnabledSetting(any());
+    verify(packageManager).setComponentEnabledSetting(componentName(TestReceiver.class),
+        PackageManager.COMPONENT_ENABLED_STATE_ENABLED, PackageManager.DONT_KILL_APP);
+  }
+
+  private static ComponentName componentName(Class<?> cls) {
+    return new ComponentName(PACKAGE_NAME, cls.getName());
+  }
+
   private static class TestReceiver extends BroadcastReceiver {
 
     @Override
@@ -72,4 +199,12 @@ public class WhatsAppOtpUtilsTest {
     }
   }
 
+  private static class SecondReceiver extends TestReceiver {
+
+  }
+
+  private static class ThirdReceiver extends TestReceiver {
+
+  }
+
 }
\ No newline at end of file